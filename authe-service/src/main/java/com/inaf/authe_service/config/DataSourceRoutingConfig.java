@@ -0,0 +1,92 @@
+package com.inaf.authe_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Remplace la DataSource auto-configurée : un pool par classe de charge sur le primaire (spring.datasource.*),
+// et lectures sur réplicas quand datasource.routing.enabled=true.
+// Flyway, Hibernate au démarrage et les transactions en écriture passent toujours par le primaire.
+@Configuration
+@EnableConfigurationProperties({WorkloadProperties.class, ReplicaRoutingProperties.class})
+public class DataSourceRoutingConfig {
+
+    // Chaque pool reprend les réglages spring.datasource.hikari.*, avec la taille de sa classe ;
+    // l'attente d'une connexion est bornée par l'attente d'une place dans le bulkhead (250 ms minimum pour Hikari)
+    @Bean
+    public WorkloadDataSource workloadDataSource(DataSourceProperties properties, WorkloadProperties workloads,
+                                                 Environment environment, MeterRegistry meterRegistry) {
+        Map<WorkloadClass, HikariDataSource> pools = new EnumMap<>(WorkloadClass.class);
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+            WorkloadProperties.Limits limits = workloads.limits(workload);
+            int poolSize = limits.getPoolSize();
+            pool.setPoolName("workload-" + workload.name().toLowerCase());
+            pool.setMaximumPoolSize(poolSize);
+            pool.setConnectionTimeout(Math.max(250, Math.min(pool.getConnectionTimeout(), limits.getQueueTimeout())));
+            pool.setMinimumIdle(Math.min(pool.getMinimumIdle(), poolSize));
+            pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            pools.put(workload, pool);
+        }
+        return new WorkloadDataSource(pools);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "datasource.routing", name = "enabled", havingValue = "true")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(WorkloadDataSource workloadDataSource,
+                                                             DataSourceProperties dataSourceProperties,
+                                                             ReplicaRoutingProperties routing) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (ReplicaRoutingProperties.Replica replica : routing.getReplicas()) {
+            replicas.add(replicaDataSource(replica, dataSourceProperties, routing, "replica-" + (replicas.size() + 1)));
+        }
+        return new ReplicaRoutingDataSource(workloadDataSource, replicas, routing.getStrategy(),
+                routing.getLagQuery(), routing.getMaxLag(), routing.getReadYourWritesWindow());
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(WorkloadDataSource workloadDataSource,
+                                 ObjectProvider<ReplicaRoutingDataSource> replicaRoutingDataSource) {
+        DataSource target = replicaRoutingDataSource.getIfAvailable();
+        return new LazyConnectionDataSourceProxy(target != null ? target : workloadDataSource);
+    }
+
+    private HikariDataSource replicaDataSource(ReplicaRoutingProperties.Replica replica,
+                                               DataSourceProperties primary,
+                                               ReplicaRoutingProperties routing, String poolName) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName(poolName);
+        dataSource.setJdbcUrl(replica.getUrl());
+        dataSource.setDriverClassName(primary.determineDriverClassName());
+        dataSource.setUsername(StringUtils.hasText(replica.getUsername())
+                ? replica.getUsername() : primary.determineUsername());
+        dataSource.setPassword(StringUtils.hasText(replica.getPassword())
+                ? replica.getPassword() : primary.determinePassword());
+        dataSource.setMaximumPoolSize(routing.getMaximumPoolSize());
+        dataSource.setConnectionTimeout(routing.getConnectionTimeout());
+        dataSource.setReadOnly(true);
+        // Un réplica arrêté au démarrage ne doit pas empêcher l'application de démarrer
+        dataSource.setInitializationFailTimeout(-1);
+        return dataSource;
+    }
+}
@@ -0,0 +1,55 @@
+package com.inaf.authe_service.config;
+
+import com.inaf.authe_service.service.BoundedPasswordEncoder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Pool borné dédié à BCrypt : au plus un thread par cœur, file limitée, rejet immédiat au-delà
+@Configuration
+public class PasswordHashingConfig {
+
+    private static final String POOL_NAME = "password.hashing";
+
+    @Value("${security.password.bcrypt-strength:10}")
+    private int bcryptStrength;
+
+    // 0 : un thread par cœur disponible
+    @Value("${security.password.hashing.pool-size:0}")
+    private int poolSize;
+
+    @Value("${security.password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${security.password.hashing.timeout:5000}")
+    private long timeout;
+
+    // Le pool reste interne à l'encodeur : exposé comme bean Executor, il remplacerait l'exécuteur
+    // applicationTaskExecutor de Spring Boot (traitements async de Spring MVC)
+    @Bean(destroyMethod = "shutdown")
+    public BoundedPasswordEncoder passwordEncoder(MeterRegistry meterRegistry) {
+        int threads = poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                new CustomizableThreadFactory("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        new ExecutorServiceMetrics(executor, POOL_NAME, Tags.empty()).bindTo(meterRegistry);
+        Counter rejections = Counter.builder(POOL_NAME + ".rejected")
+                .description("Password hashing requests rejected because the pool was saturated")
+                .register(meterRegistry);
+        return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength), bcryptStrength,
+                executor, timeout, rejections);
+    }
+}
@@ -0,0 +1,215 @@
+package com.inaf.authe_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Envoie les transactions en lecture seule vers un réplica, tout le reste vers le primaire.
+ * Un réplica trop en retard ou injoignable est écarté jusqu'à la vérification suivante ;
+ * sans réplica disponible, les lectures retombent sur le primaire.
+ * Après une écriture validée, l'utilisateur qui l'a faite lit sur le primaire pendant
+ * {@code readYourWritesWindow} ms, le temps que les réplicas la rejouent.
+ * Doit être enveloppé dans un {@code LazyConnectionDataSourceProxy} : la connexion n'est alors
+ * demandée qu'à la première requête, une fois le caractère lecture seule de la transaction connu.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    public enum Strategy { ROUND_ROBIN, LEAST_LOADED }
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    // Au-delà, les écritures sorties de la fenêtre sont purgées
+    private static final int MAX_TRACKED_WRITERS = 10_000;
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final String lagQuery;
+    private final long maxLag;
+    private final long readYourWritesWindow;
+
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    // Date (ms) de la dernière écriture validée, par utilisateur
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<? extends DataSource> replicas, Strategy strategy,
+                                    String lagQuery, long maxLag, long readYourWritesWindow) {
+        this.primary = primary;
+        this.replicas = replicas.stream().map(Replica::new).toList();
+        this.strategy = strategy;
+        this.lagQuery = lagQuery;
+        this.maxLag = maxLag;
+        this.readYourWritesWindow = readYourWritesWindow;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Replica replica = route();
+        if (replica == null) {
+            return primary.getConnection();
+        }
+        try {
+            return replica.dataSource.getConnection();
+        } catch (SQLException e) {
+            replica.available = false;
+            log.warn("Read replica unreachable, falling back to the primary until the next check", e);
+            return primary.getConnection();
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return getConnection();
+    }
+
+    // Réplica à utiliser, null pour le primaire
+    private Replica route() {
+        String user = currentUser();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (user != null) {
+                recordWrite(user);
+            }
+            return null;
+        }
+        if (user != null && wroteRecently(user)) {
+            return null;
+        }
+        return strategy == Strategy.LEAST_LOADED ? leastLoadedReplica() : nextReplica();
+    }
+
+    private Replica nextReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(nextReplica.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.available) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    private Replica leastLoadedReplica() {
+        Replica selected = null;
+        int selectedLoad = Integer.MAX_VALUE;
+        for (Replica replica : replicas) {
+            if (!replica.available) {
+                continue;
+            }
+            int load = replica.activeConnections();
+            if (load < selectedLoad) {
+                selected = replica;
+                selectedLoad = load;
+            }
+        }
+        return selected;
+    }
+
+    // Une transaction annulée n'a rien écrit : l'écriture n'est retenue qu'au commit
+    private void recordWrite(String user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markWrite(user);
+            }
+        });
+    }
+
+    private void markWrite(String user) {
+        long now = System.currentTimeMillis();
+        if (lastWrites.size() >= MAX_TRACKED_WRITERS) {
+            lastWrites.values().removeIf(writtenAt -> writtenAt + readYourWritesWindow <= now);
+        }
+        lastWrites.put(user, now);
+    }
+
+    private boolean wroteRecently(String user) {
+        Long writtenAt = lastWrites.get(user);
+        return writtenAt != null && writtenAt + readYourWritesWindow > System.currentTimeMillis();
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || authentication instanceof AnonymousAuthenticationToken) {
+            return null;
+        }
+        return authentication.getName();
+    }
+
+    // Mesure le retard de chaque réplica ; un réplica écarté sur erreur de connexion revient ici s'il répond
+    @Scheduled(fixedDelayString = "${datasource.routing.health-check-interval:5000}")
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet rs = statement.executeQuery(lagQuery)) {
+                long lag = rs.next() ? rs.getLong(1) : 0;
+                boolean available = lag <= maxLag;
+                if (replica.available && !available) {
+                    log.warn("Read replica lagging by {} ms, reads go to the primary", lag);
+                }
+                replica.available = available;
+            } catch (SQLException e) {
+                if (replica.available) {
+                    log.warn("Read replica health check failed, reads go to the primary", e);
+                }
+                replica.available = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Read replica pool did not close cleanly", e);
+                }
+            }
+        }
+    }
+
+    private static final class Replica {
+
+        private final DataSource dataSource;
+        private volatile boolean available = true;
+
+        private Replica(DataSource dataSource) {
+            this.dataSource = dataSource;
+        }
+
+        private int activeConnections() {
+            if (dataSource instanceof HikariDataSource hikari) {
+                HikariPoolMXBean pool = hikari.getHikariPoolMXBean();
+                return pool != null ? pool.getActiveConnections() : 0;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.inaf.authe_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Réplicas en lecture et règles de routage (datasource.routing.*)
+@ConfigurationProperties(prefix = "datasource.routing")
+public class ReplicaRoutingProperties {
+
+    private boolean enabled;
+
+    private ReplicaRoutingDataSource.Strategy strategy = ReplicaRoutingDataSource.Strategy.ROUND_ROBIN;
+
+    // Retard de réplication toléré (ms) au-delà duquel un réplica n'est plus lu
+    private long maxLag = 5000;
+
+    // Durée (ms) pendant laquelle un utilisateur lit sur le primaire après l'une de ses écritures
+    private long readYourWritesWindow = 5000;
+
+    // Requête exécutée sur le réplica, renvoie le retard en ms (0 si le réplica a tout rejoué)
+    private String lagQuery = "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    // Court, pour qu'un réplica injoignable bascule vite sur le primaire
+    private long connectionTimeout = 2000;
+
+    private int maximumPoolSize = 10;
+
+    private List<Replica> replicas = new ArrayList<>();
+
+    public boolean isEnabled() { return enabled; }
+    public void setEnabled(boolean enabled) { this.enabled = enabled; }
+
+    public ReplicaRoutingDataSource.Strategy getStrategy() { return strategy; }
+    public void setStrategy(ReplicaRoutingDataSource.Strategy strategy) { this.strategy = strategy; }
+
+    public long getMaxLag() { return maxLag; }
+    public void setMaxLag(long maxLag) { this.maxLag = maxLag; }
+
+    public long getReadYourWritesWindow() { return readYourWritesWindow; }
+    public void setReadYourWritesWindow(long readYourWritesWindow) { this.readYourWritesWindow = readYourWritesWindow; }
+
+    public String getLagQuery() { return lagQuery; }
+    public void setLagQuery(String lagQuery) { this.lagQuery = lagQuery; }
+
+    public long getConnectionTimeout() { return connectionTimeout; }
+    public void setConnectionTimeout(long connectionTimeout) { this.connectionTimeout = connectionTimeout; }
+
+    public int getMaximumPoolSize() { return maximumPoolSize; }
+    public void setMaximumPoolSize(int maximumPoolSize) { this.maximumPoolSize = maximumPoolSize; }
+
+    public List<Replica> getReplicas() { return replicas; }
+    public void setReplicas(List<Replica> replicas) { this.replicas = replicas; }
+
+    // Identifiants vides : ceux du primaire
+    public static class Replica {
+
+        private String url;
+        private String username;
+        private String password;
+
+        public String getUrl() { return url; }
+        public void setUrl(String url) { this.url = url; }
+
+        public String getUsername() { return username; }
+        public void setUsername(String username) { this.username = username; }
+
+        public String getPassword() { return password; }
+        public void setPassword(String password) { this.password = password; }
+    }
+}
@@ -0,0 +1,10 @@
+package com.inaf.authe_service.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.retry.annotation.EnableRetry;
+
+// L'intercepteur de retry s'exécute autour de la transaction : chaque tentative rejoue une transaction complète
+@Configuration
+@EnableRetry
+public class RetryConfig {
+}
@@ -0,0 +1,31 @@
+package com.inaf.authe_service.config;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.annotation.Backoff;
+import org.springframework.retry.annotation.Retryable;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Rejoue une méthode d'écriture transactionnelle lorsqu'une autre transaction a modifié
+ * la même entité versionnée entre-temps (backoff exponentiel borné, avec gigue).
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@Retryable(
+        retryFor = OptimisticLockingFailureException.class,
+        maxAttemptsExpression = "${concurrency.retry.max-attempts:4}",
+        backoff = @Backoff(
+                delayExpression = "${concurrency.retry.initial-delay:20}",
+                maxDelayExpression = "${concurrency.retry.max-delay:200}",
+                multiplierExpression = "${concurrency.retry.multiplier:2}",
+                random = true
+        )
+)
+public @interface RetryOnConflict {
+}
@@ -2,8 +2,11 @@ package com.inaf.authe_service.config;
 
 import com.inaf.authe_service.filter.JwtAuthenticationFilter;
 import com.inaf.authe_service.service.JwtService;
+import com.inaf.authe_service.service.TokenBlacklistService;
+import com.inaf.authe_service.service.UserDetailsCache;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -13,8 +16,8 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -26,27 +29,34 @@ public class SecurityConfig {
 
     private final UserDetailsService userDetailsService;
     private final JwtService jwtService;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenBlacklistService tokenBlacklistService;
+    private final UserDetailsPasswordService userDetailsPasswordService;
+    private final PasswordEncoder passwordEncoder;
 
-    public SecurityConfig(UserDetailsService userDetailsService, JwtService jwtService) {
+    public SecurityConfig(UserDetailsService userDetailsService, JwtService jwtService,
+                          UserDetailsCache userDetailsCache, TokenBlacklistService tokenBlacklistService,
+                          UserDetailsPasswordService userDetailsPasswordService, PasswordEncoder passwordEncoder) {
         this.userDetailsService = userDetailsService;
         this.jwtService = jwtService;
-    }
-
-    @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        this.userDetailsCache = userDetailsCache;
+        this.tokenBlacklistService = tokenBlacklistService;
+        this.userDetailsPasswordService = userDetailsPasswordService;
+        this.passwordEncoder = passwordEncoder;
     }
 
     @Bean
     public JwtAuthenticationFilter jwtAuthenticationFilter() {
-        return new JwtAuthenticationFilter(jwtService, userDetailsService);
+        return new JwtAuthenticationFilter(jwtService, userDetailsService, userDetailsCache, tokenBlacklistService);
     }
 
     @Bean
     public AuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
-        authProvider.setPasswordEncoder(passwordEncoder());
+        authProvider.setPasswordEncoder(passwordEncoder);
+        // Re-hachage transparent à la connexion quand le coût BCrypt configuré change
+        authProvider.setUserDetailsPasswordService(userDetailsPasswordService);
         return authProvider;
     }
 
@@ -60,6 +70,8 @@ public class SecurityConfig {
         http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(authz -> authz
+                        // Opération d'administration lourde (verrouille les cumuls de CA)
+                        .requestMatchers(HttpMethod.POST, "/api/sales/revenue/rollups/rebuild").hasRole("ADMIN")
                         .requestMatchers(
                                 "/api/auth/**",
                                 "/api/sales/**",
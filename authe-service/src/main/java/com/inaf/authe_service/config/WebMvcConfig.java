@@ -0,0 +1,82 @@
+package com.inaf.authe_service.config;
+
+import com.inaf.authe_service.filter.WorkloadBulkheadInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.util.concurrent.Callable;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    private final WorkloadBulkheadInterceptor workloadBulkheadInterceptor;
+
+    @Value("${exports.request-timeout:3600000}")
+    private long exportTimeout;
+
+    public WebMvcConfig(WorkloadBulkheadInterceptor workloadBulkheadInterceptor) {
+        this.workloadBulkheadInterceptor = workloadBulkheadInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(workloadBulkheadInterceptor);
+    }
+
+    // Le délai async global (spring.mvc.async.request-timeout) reste court : seuls les exports en flux
+    // (StreamingResponseBody) disposent d'un délai long, appliqué juste avant le démarrage du traitement async
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                if (request instanceof AsyncWebRequest asyncRequest && isStreamingExport(request.getAttribute(
+                        HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST))) {
+                    asyncRequest.setTimeout(exportTimeout);
+                }
+            }
+        });
+    }
+
+    private static boolean isStreamingExport(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return false;
+        }
+        Class<?> returnType = handlerMethod.getMethod().getReturnType();
+        if (ResponseEntity.class.isAssignableFrom(returnType)) {
+            returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod()).getGeneric().resolve(Object.class);
+        }
+        return StreamingResponseBody.class.isAssignableFrom(returnType);
+    }
+
+    // Spring Boot l'applique à applicationTaskExecutor, l'exécuteur async de Spring MVC :
+    // un export en flux garde le pool de sa classe (aucun autre bean Executor ne doit le remplacer)
+    @Bean
+    public TaskDecorator workloadTaskDecorator() {
+        return task -> {
+            WorkloadClass workload = WorkloadContext.current();
+            return () -> {
+                WorkloadContext.set(workload);
+                try {
+                    task.run();
+                } finally {
+                    WorkloadContext.clear();
+                }
+            };
+        };
+    }
+}
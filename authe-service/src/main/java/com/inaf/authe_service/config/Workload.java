@@ -0,0 +1,20 @@
+package com.inaf.authe_service.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Classe de charge d'un endpoint (sur la méthode, ou sur le contrôleur pour toutes ses méthodes).
+ * La requête attend une place dans le bulkhead de sa classe puis utilise le pool de connexions de la classe.
+ * Les endpoints non annotés et les abonnements SSE, ouverts pour des heures, ne sont pas limités.
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Workload {
+
+    WorkloadClass value();
+}
@@ -0,0 +1,13 @@
+package com.inaf.authe_service.config;
+
+// Classes de charge : chacune a sa limite de requêtes simultanées et son propre pool de connexions
+public enum WorkloadClass {
+    // Passage en caisse : création, modification, confirmation et annulation des ventes, mouvements de stock
+    CHECKOUT,
+    // Inscription, connexion, renouvellement de token
+    AUTH,
+    // Consultations unitaires et écritures courantes du catalogue ; classe par défaut des traitements hors requête
+    INTERACTIVE,
+    // Listes complètes, exports, imports, recherches et agrégats sur des périodes
+    REPORTING
+}
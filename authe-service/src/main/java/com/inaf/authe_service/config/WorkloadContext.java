@@ -0,0 +1,24 @@
+package com.inaf.authe_service.config;
+
+// Classe de charge du traitement en cours sur le thread, lue par WorkloadDataSource pour choisir le pool
+public final class WorkloadContext {
+
+    private static final ThreadLocal<WorkloadClass> CURRENT = new ThreadLocal<>();
+
+    private WorkloadContext() {
+    }
+
+    // INTERACTIVE hors requête classée (jobs planifiés, filtres, démarrage)
+    public static WorkloadClass current() {
+        WorkloadClass workload = CURRENT.get();
+        return workload != null ? workload : WorkloadClass.INTERACTIVE;
+    }
+
+    public static void set(WorkloadClass workload) {
+        CURRENT.set(workload);
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+}
@@ -0,0 +1,29 @@
+package com.inaf.authe_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Un pool de connexions par classe de charge : un rapport lourd épuise le pool REPORTING, jamais celui de CHECKOUT
+public class WorkloadDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<WorkloadClass, HikariDataSource> pools;
+
+    public WorkloadDataSource(Map<WorkloadClass, HikariDataSource> pools) {
+        this.pools = pools;
+        setTargetDataSources(new HashMap<>(pools));
+        setDefaultTargetDataSource(pools.get(WorkloadClass.INTERACTIVE));
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return WorkloadContext.current();
+    }
+
+    @Override
+    public void close() {
+        pools.values().forEach(HikariDataSource::close);
+    }
+}
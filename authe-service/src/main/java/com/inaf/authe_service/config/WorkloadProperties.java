@@ -0,0 +1,71 @@
+package com.inaf.authe_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+// Limites de chaque classe de charge (workload.<classe>.*)
+@ConfigurationProperties(prefix = "workload")
+public class WorkloadProperties {
+
+    private Limits checkout = new Limits(8, 32, 2000, 8);
+    private Limits auth = new Limits(4, 16, 1000, 4);
+    private Limits interactive = new Limits(5, 20, 1000, 5);
+    private Limits reporting = new Limits(3, 6, 500, 3);
+
+    public Limits limits(WorkloadClass workload) {
+        return switch (workload) {
+            case CHECKOUT -> checkout;
+            case AUTH -> auth;
+            case INTERACTIVE -> interactive;
+            case REPORTING -> reporting;
+        };
+    }
+
+    public Limits getCheckout() { return checkout; }
+    public void setCheckout(Limits checkout) { this.checkout = checkout; }
+
+    public Limits getAuth() { return auth; }
+    public void setAuth(Limits auth) { this.auth = auth; }
+
+    public Limits getInteractive() { return interactive; }
+    public void setInteractive(Limits interactive) { this.interactive = interactive; }
+
+    public Limits getReporting() { return reporting; }
+    public void setReporting(Limits reporting) { this.reporting = reporting; }
+
+    public static class Limits {
+
+        // Requêtes traitées simultanément ; au plus poolSize, sinon les requêtes admises attendent une connexion
+        private int maxConcurrent;
+
+        // Requêtes en attente d'une place ; au-delà, rejet immédiat sans bloquer un thread Tomcat
+        private int maxQueued;
+
+        // Attente maximale (ms) d'une place avant la réponse 503
+        private long queueTimeout;
+
+        // Connexions du pool de la classe
+        private int poolSize;
+
+        public Limits() {
+        }
+
+        public Limits(int maxConcurrent, int maxQueued, long queueTimeout, int poolSize) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+            this.queueTimeout = queueTimeout;
+            this.poolSize = poolSize;
+        }
+
+        public int getMaxConcurrent() { return maxConcurrent; }
+        public void setMaxConcurrent(int maxConcurrent) { this.maxConcurrent = maxConcurrent; }
+
+        public int getMaxQueued() { return maxQueued; }
+        public void setMaxQueued(int maxQueued) { this.maxQueued = maxQueued; }
+
+        public long getQueueTimeout() { return queueTimeout; }
+        public void setQueueTimeout(long queueTimeout) { this.queueTimeout = queueTimeout; }
+
+        public int getPoolSize() { return poolSize; }
+        public void setPoolSize(int poolSize) { this.poolSize = poolSize; }
+    }
+}
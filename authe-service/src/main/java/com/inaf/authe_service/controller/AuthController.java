@@ -1,22 +1,34 @@
 package com.inaf.authe_service.controller;
 
+import com.inaf.authe_service.config.Workload;
+import com.inaf.authe_service.config.WorkloadClass;
 import com.inaf.authe_service.dto.LoginRequest;
 import com.inaf.authe_service.dto.LoginResponse;
+import com.inaf.authe_service.dto.RefreshTokenRequest;
 import com.inaf.authe_service.dto.RegisterRequest;
 import com.inaf.authe_service.entity.User;
 import com.inaf.authe_service.service.JwtService;
+import com.inaf.authe_service.service.LoginAttemptService;
+import com.inaf.authe_service.service.PasswordHashingUnavailableException;
+import com.inaf.authe_service.service.TokenBlacklistService;
+import com.inaf.authe_service.service.UserDetailsCache;
 import com.inaf.authe_service.service.UserService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.LockedException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +40,7 @@ import java.util.Map;
 @RequestMapping("/api/auth")
 @CrossOrigin(origins = "*")
 @Tag(name = "Authentification", description = "Gestion de l'inscription, connexion, profil et déconnexion")
+@Workload(WorkloadClass.AUTH)
 public class AuthController {
 
     @Autowired
@@ -39,10 +52,22 @@ public class AuthController {
     @Autowired
     private JwtService jwtService;
 
+    @Autowired
+    private TokenBlacklistService tokenBlacklistService;
+
+    @Autowired
+    private UserDetailsCache userDetailsCache;
+
+    @Autowired
+    private LoginAttemptService loginAttemptService;
+
+    private static final String USERNAME_CLAIM = "username";
+
     @Operation(summary = "Inscription d'un utilisateur",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Inscription réussie"),
-                    @ApiResponse(responseCode = "400", description = "Email déjà utilisé", content = @Content)
+                    @ApiResponse(responseCode = "400", description = "Email déjà utilisé", content = @Content),
+                    @ApiResponse(responseCode = "503", description = "Serveur saturé, réessayer plus tard", content = @Content)
             }
     )
 
@@ -66,6 +91,8 @@ public class AuthController {
                     "email", savedUser.getEmail()
             ));
 
+        } catch (PasswordHashingUnavailableException e) {
+            return serviceUnavailable();
         } catch (RuntimeException e) {
             return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
@@ -76,18 +103,39 @@ public class AuthController {
                     @ApiResponse(responseCode = "200", description = "Connexion réussie",
                             content = @Content(schema = @Schema(implementation = LoginResponse.class))),
                     @ApiResponse(responseCode = "404", description = "Utilisateur non trouvé", content = @Content),
-                    @ApiResponse(responseCode = "401", description = "Identifiants invalides", content = @Content)
+                    @ApiResponse(responseCode = "401", description = "Identifiants invalides", content = @Content),
+                    @ApiResponse(responseCode = "423", description = "Compte verrouillé", content = @Content),
+                    @ApiResponse(responseCode = "429", description = "Trop de tentatives de connexion", content = @Content),
+                    @ApiResponse(responseCode = "503", description = "Serveur saturé, réessayer plus tard", content = @Content)
             }
     )
     @PostMapping("/login")
-    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request) {
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+    public ResponseEntity<?> login(@Valid @RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        String clientIp = httpRequest.getRemoteAddr();
+        if (loginAttemptService.isBlocked(request.getEmail(), clientIp)) {
+            return ResponseEntity.status(429)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(loginAttemptService.retryAfterSeconds()))
+                    .body(Map.of("error", "Too many login attempts, please try again later"));
+        }
 
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (PasswordHashingUnavailableException e) {
+            return serviceUnavailable();
+        } catch (LockedException e) {
+            return ResponseEntity.status(423).body(Map.of("error", "Account locked"));
+        } catch (AuthenticationException e) {
+            loginAttemptService.loginFailed(request.getEmail(), clientIp);
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid credentials"));
+        }
+
+        loginAttemptService.loginSucceeded(request.getEmail());
         UserDetails userDetails = (UserDetails) authentication.getPrincipal();
         User user = userService.findByEmail(request.getEmail());
 
@@ -96,11 +144,59 @@ public class AuthController {
         }
 
         String jwt = jwtService.generateToken(userDetails);
-        LoginResponse response = new LoginResponse(jwt, user.getUsername(), user.getEmail());
+        String refreshToken = jwtService.generateRefreshToken(Map.of(USERNAME_CLAIM, user.getUsername()), userDetails);
+        LoginResponse response = new LoginResponse(jwt, refreshToken, user.getUsername(), user.getEmail());
 
         return ResponseEntity.ok(response);
     }
 
+    @Operation(summary = "Renouveler le token d'accès à partir d'un refresh token",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Nouveaux tokens émis",
+                            content = @Content(schema = @Schema(implementation = LoginResponse.class))),
+                    @ApiResponse(responseCode = "401", description = "Refresh token invalide, expiré ou déjà utilisé", content = @Content)
+            }
+    )
+    @PostMapping("/refresh")
+    public ResponseEntity<?> refresh(@Valid @RequestBody RefreshTokenRequest request) {
+        String refreshToken = request.getRefreshToken();
+        try {
+            if (!jwtService.isRefreshToken(refreshToken)) {
+                return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token"));
+            }
+
+            // Rotation : chaque refresh token n'est utilisable qu'une fois ; sans jti il ne pourrait pas être suivi
+            String tokenId = jwtService.extractTokenId(refreshToken);
+            if (tokenId == null) {
+                return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token"));
+            }
+            if (!tokenBlacklistService.consume(tokenId, jwtService.extractExpiration(refreshToken))) {
+                return ResponseEntity.status(401).body(Map.of("error", "Refresh token already used"));
+            }
+
+            // Claims du token, sauf si le compte a changé depuis son émission
+            String email = jwtService.extractUsername(refreshToken);
+            UserDetails userDetails = userDetailsCache.isInvalidatedSince(email, jwtService.extractIssuedAt(refreshToken))
+                    ? userDetailsCache.get(email, userService::loadUserByUsername)
+                    : jwtService.extractUserDetails(refreshToken);
+            if (!userDetails.isEnabled() || !userDetails.isAccountNonLocked()) {
+                return ResponseEntity.status(401).body(Map.of("error", "Account disabled or locked"));
+            }
+
+            String username = jwtService.extractClaim(refreshToken, claims -> claims.get(USERNAME_CLAIM, String.class));
+            Map<String, Object> extraClaims = username != null ? Map.of(USERNAME_CLAIM, username) : Map.of();
+            return ResponseEntity.ok(new LoginResponse(
+                    jwtService.generateToken(userDetails),
+                    jwtService.generateRefreshToken(extraClaims, userDetails),
+                    username,
+                    email
+            ));
+
+        } catch (JwtException | AuthenticationException e) {
+            return ResponseEntity.status(401).body(Map.of("error", "Invalid refresh token"));
+        }
+    }
+
     @Operation(
             summary = "Récupérer le profil de l'utilisateur connecté",
             responses = {
@@ -140,17 +236,44 @@ public class AuthController {
         }
     }
 
-    @Operation(summary = "Déconnexion de l'utilisateur",
+    @Operation(summary = "Déconnexion de l'utilisateur (révoque le token d'accès et, s'il est fourni, le refresh token)",
             responses = {
                     @ApiResponse(responseCode = "200", description = "Déconnexion réussie")
             }
     )
     @PostMapping("/logout")
-    public ResponseEntity<?> logout() {
+    public ResponseEntity<?> logout(@RequestHeader(value = "Authorization", required = false) String authHeader,
+                                    @RequestBody(required = false) RefreshTokenRequest request) {
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            String jwt = authHeader.substring(7);
+            try {
+                tokenBlacklistService.revoke(jwtService.extractTokenId(jwt), jwtService.extractExpiration(jwt));
+            } catch (JwtException e) {
+                // Token invalide ou déjà expiré : il n'y a rien à révoquer
+            }
+        }
+        // Le refresh token est consommé comme lors d'une rotation : il ne pourra plus servir
+        if (request != null && request.getRefreshToken() != null) {
+            String refreshToken = request.getRefreshToken();
+            try {
+                if (jwtService.isRefreshToken(refreshToken)) {
+                    tokenBlacklistService.consume(jwtService.extractTokenId(refreshToken), jwtService.extractExpiration(refreshToken));
+                }
+            } catch (JwtException e) {
+                // Refresh token invalide ou déjà expiré : il n'y a rien à révoquer
+            }
+        }
         SecurityContextHolder.clearContext();
         return ResponseEntity.ok(Map.of(
                 "message", "Logged out successfully",
                 "note", "Please remove the JWT token from client storage"
         ));
     }
+
+    // Pool de hachage saturé : rejet rapide plutôt que d'attendre un thread
+    private ResponseEntity<?> serviceUnavailable() {
+        return ResponseEntity.status(503)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", "Server busy, please retry later"));
+    }
 }
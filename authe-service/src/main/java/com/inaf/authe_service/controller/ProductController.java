@@ -1,9 +1,15 @@
 package com.inaf.authe_service.controller;
 
+import com.inaf.authe_service.config.Workload;
+import com.inaf.authe_service.config.WorkloadClass;
+import com.inaf.authe_service.dto.CursorPageDto;
+import com.inaf.authe_service.dto.ProductImportReportDto;
 import com.inaf.authe_service.dto.ProductRequestDto;
 import com.inaf.authe_service.dto.ProductResponseDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
+import com.inaf.authe_service.service.ProductBulkImporter;
 import com.inaf.authe_service.service.ProductService;
+import com.inaf.authe_service.service.TooManySubscribersException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import jakarta.validation.Valid;
@@ -11,15 +17,21 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
 @RequestMapping("/api/products")
 @CrossOrigin(origins = "*")
+@Workload(WorkloadClass.INTERACTIVE)
 public class ProductController {
 
     private final ProductService productService;
@@ -42,12 +54,41 @@ public class ProductController {
     @Operation(summary = "Récupérer toutes les ventes sans pagination",
             description = "Renvoie la liste complète des ventes disponibles.")
     @ApiResponse(responseCode = "200", description = "Liste des ventes récupérée avec succès")
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/all")
     public ResponseEntity<List<ProductResponseDto>> getAllSales() {
         List<ProductResponseDto> product = productService.getAll();
         return ResponseEntity.ok(product);
     }
 
+    @Operation(summary = "Exporter tous les produits en flux NDJSON",
+            description = "Écrit un produit JSON par ligne au fil de la lecture en base, sans charger la liste complète en mémoire.")
+    @ApiResponse(responseCode = "200", description = "Flux des produits")
+    @Workload(WorkloadClass.REPORTING)
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts() {
+        StreamingResponseBody body = productService::exportAll;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    @Operation(summary = "Importer des produits en masse (CSV ou NDJSON)",
+            description = "Lit le fichier au fil de l'eau : un nom existant met le produit à jour, un nouveau nom le crée. "
+                    + "Le CSV doit commencer par un en-tête (name, description, price, quantity, category).")
+    @ApiResponse(responseCode = "200", description = "Rapport d'import avec les erreurs par ligne")
+    @Workload(WorkloadClass.REPORTING)
+    @PostMapping(value = "/import", consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<ProductImportReportDto> importProducts(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        ProductBulkImporter.Format format = MediaType.APPLICATION_NDJSON.isCompatibleWith(contentType)
+                ? ProductBulkImporter.Format.NDJSON
+                : ProductBulkImporter.Format.CSV;
+        try {
+            return ResponseEntity.ok(productService.importProducts(body, format));
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponseDto> getProductById(@PathVariable Long id) {
         try {
@@ -65,6 +106,21 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Récupérer les produits par pagination par clé",
+            description = "Parcourt les produits par identifiant croissant. Passer le nextCursor de la réponse " +
+                    "pour obtenir la page suivante ; le total n'est calculé que si includeTotal=true.")
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<ProductResponseDto>> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return ResponseEntity.ok(productService.getProductsByCursor(cursor, size, includeTotal));
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity<ProductResponseDto> updateProduct(
             @PathVariable Long id,
@@ -107,6 +163,16 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @Operation(summary = "Suggestions de noms de produits",
+            description = "Noms de produits dont un mot commence par le préfixe saisi, servis depuis l'index de recherche en mémoire.")
+    @ApiResponse(responseCode = "200", description = "Liste des suggestions")
+    @GetMapping("/autocomplete")
+    public ResponseEntity<List<String>> autocomplete(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.autocomplete(prefix, limit));
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<List<ProductResponseDto>> getLowStockProducts(
             @RequestParam(defaultValue = "10") Integer threshold) {
@@ -114,6 +180,21 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping(value = "/low-stock/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Suivre les alertes de stock bas en flux SSE",
+            description = "Événement 'low-stock' quand un produit passe sous le seuil, 'restocked' quand il repasse au-dessus")
+    public ResponseEntity<SseEmitter> streamLowStock(@RequestParam(defaultValue = "10") Integer threshold) {
+        try {
+            return ResponseEntity.ok(productService.subscribeToLowStock(threshold));
+        } catch (TooManySubscribersException e) {
+            // Pas de corps : la réponse est négociée en text/event-stream
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+
+    @Workload(WorkloadClass.CHECKOUT)
     @PatchMapping("/{id}/stock")
     public ResponseEntity<Void> updateStock(
             @PathVariable Long id,
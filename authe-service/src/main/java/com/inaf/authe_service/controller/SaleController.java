@@ -2,6 +2,9 @@ package com.inaf.authe_service.controller;
 
 
 import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.config.Workload;
+import com.inaf.authe_service.config.WorkloadClass;
+import com.inaf.authe_service.dto.CursorPageDto;
 import com.inaf.authe_service.dto.SaleRequestDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
 import com.inaf.authe_service.service.SaleService;
@@ -12,16 +15,20 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/sales")
 @CrossOrigin(origins = "*")
+@Workload(WorkloadClass.INTERACTIVE)
 public class SaleController {
 
     private final SaleService saleService;
@@ -31,6 +38,7 @@ public class SaleController {
         this.saleService = saleService;
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @PostMapping
     @Operation(summary = "Créer une nouvelle vente")
     public ResponseEntity<SaleResponseDto> createSale(@RequestBody SaleRequestDto requestDto) {
@@ -45,21 +53,49 @@ public class SaleController {
     @Operation(summary = "Récupérer toutes les ventes sans pagination",
             description = "Renvoie la liste complète des ventes disponibles.")
     @ApiResponse(responseCode = "200", description = "Liste des ventes récupérée avec succès")
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/all")
     public ResponseEntity<List<SaleResponseDto>> getAllSales() {
         List<SaleResponseDto> sales = saleService.getAll();
         return ResponseEntity.ok(sales);
     }
 
+    @Operation(summary = "Exporter toutes les ventes en flux NDJSON",
+            description = "Écrit une vente JSON par ligne au fil de la lecture en base, sans charger la liste complète en mémoire.")
+    @ApiResponse(responseCode = "200", description = "Flux des ventes")
+    @Workload(WorkloadClass.REPORTING)
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportSales() {
+        StreamingResponseBody body = saleService::exportAll;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
     @Operation(summary = "Récupérer toutes les ventes avec pagination",
             description = "Renvoie une page de ventes, selon les paramètres Pageable fournis.")
     @ApiResponse(responseCode = "200", description = "Page des ventes récupérée avec succès")
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/paged")
     public ResponseEntity<Page<SaleResponseDto>> getAllSalesPaged(Pageable pageable) {
         Page<SaleResponseDto> sales = saleService.getAllSales(pageable);
         return new ResponseEntity<>(sales, HttpStatus.OK);
     }
 
+    @Operation(summary = "Récupérer les ventes par pagination par clé",
+            description = "Parcourt les ventes de la plus récente à la plus ancienne. Passer le nextCursor " +
+                    "de la réponse pour obtenir la page suivante ; le total n'est calculé que si includeTotal=true.")
+    @ApiResponse(responseCode = "200", description = "Page des ventes récupérée avec succès")
+    @GetMapping("/cursor")
+    public ResponseEntity<CursorPageDto<SaleResponseDto>> getSalesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
+        try {
+            return new ResponseEntity<>(saleService.getSalesByCursor(cursor, size, includeTotal), HttpStatus.OK);
+        } catch (RuntimeException e) {
+            return new ResponseEntity<>(null, HttpStatus.BAD_REQUEST);
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Récupérer une vente par son identifiant")
     public ResponseEntity<SaleResponseDto> getSaleById(@PathVariable Long id) {
@@ -82,6 +118,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @PutMapping("/{id}")
     @Operation(summary = "Mettre à jour une vente")
     public ResponseEntity<SaleResponseDto> updateSale(@PathVariable Long id,
@@ -94,6 +131,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @DeleteMapping("/{id}")
     @Operation(summary = "Supprimer une vente")
     public ResponseEntity<Void> deleteSale(@PathVariable Long id) {
@@ -105,6 +143,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @PutMapping("/{id}/confirm")
     @Operation(summary = "Confirmer une vente")
     public ResponseEntity<SaleResponseDto> confirmSale(@PathVariable Long id) {
@@ -116,6 +155,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @PutMapping("/{id}/cancel")
     @Operation(summary = "Annuler une vente")
     public ResponseEntity<SaleResponseDto> cancelSale(@PathVariable Long id) {
@@ -127,6 +167,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.CHECKOUT)
     @PutMapping("/{id}/status")
     @Operation(summary = "Mettre à jour le statut d'une vente")
     public ResponseEntity<SaleResponseDto> updateSaleStatus(@PathVariable Long id,
@@ -139,6 +180,7 @@ public class SaleController {
         }
     }
 
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/status/{status}")
     @Operation(summary = "Récupérer les ventes par statut")
     public ResponseEntity<List<SaleResponseDto>> getSalesByStatus(@PathVariable SaleStatus status) {
@@ -153,6 +195,7 @@ public class SaleController {
         return new ResponseEntity<>(sales, HttpStatus.OK);
     }
 
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/date-range")
     @Operation(summary = "Récupérer les ventes dans une plage de dates")
     public ResponseEntity<List<SaleResponseDto>> getSalesByDateRange(
@@ -170,6 +213,7 @@ public class SaleController {
         return new ResponseEntity<>(sales, HttpStatus.OK);
     }
 
+    @Workload(WorkloadClass.REPORTING)
     @GetMapping("/revenue")
     @Operation(summary = "Calculer le chiffre d'affaires total sur une période")
     public ResponseEntity<BigDecimal> getTotalRevenueByPeriod(
@@ -179,6 +223,22 @@ public class SaleController {
         return new ResponseEntity<>(revenue, HttpStatus.OK);
     }
 
+    @Workload(WorkloadClass.REPORTING)
+    @PostMapping("/revenue/rollups/rebuild")
+    @Operation(summary = "Reconstruire les cumuls journaliers du chiffre d'affaires",
+            description = "Recalcule les cumuls par jour et par mode de paiement à partir des ventes confirmées.")
+    public ResponseEntity<Map<String, Integer>> rebuildRevenueRollups() {
+        int rows = saleService.rebuildRevenueRollups();
+        return new ResponseEntity<>(Map.of("rows", rows), HttpStatus.OK);
+    }
+
+    @GetMapping("/count/status")
+    @Operation(summary = "Compter les ventes de chaque statut",
+            description = "Renvoie en une fois le nombre de ventes pour tous les statuts, servi depuis les compteurs en mémoire.")
+    public ResponseEntity<Map<SaleStatus, Long>> getSalesCountsByStatus() {
+        return new ResponseEntity<>(saleService.getSalesCountsByStatus(), HttpStatus.OK);
+    }
+
     @GetMapping("/count/status/{status}")
     @Operation(summary = "Compter le nombre de ventes par statut")
     public ResponseEntity<Long> getSalesCountByStatus(@PathVariable SaleStatus status) {
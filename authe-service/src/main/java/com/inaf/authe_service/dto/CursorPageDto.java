@@ -0,0 +1,11 @@
+package com.inaf.authe_service.dto;
+
+import java.util.List;
+
+// Page obtenue par pagination par clé : nextCursor est opaque et null sur la dernière page
+public record CursorPageDto<T>(
+        List<T> content,
+        String nextCursor,
+        boolean hasNext,
+        Long totalElements
+) {}
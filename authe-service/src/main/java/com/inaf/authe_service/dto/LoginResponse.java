@@ -3,6 +3,7 @@ package com.inaf.authe_service.dto;
 public class LoginResponse {
 
     private String token;
+    private String refreshToken;
     private String username;
     private String email;
     private String tokenType = "Bearer";
@@ -16,10 +17,18 @@ public class LoginResponse {
         this.email = email;
     }
 
+    public LoginResponse(String token, String refreshToken, String username, String email) {
+        this(token, username, email);
+        this.refreshToken = refreshToken;
+    }
+
     // Getters et Setters
     public String getToken() { return token; }
     public void setToken(String token) { this.token = token; }
 
+    public String getRefreshToken() { return refreshToken; }
+    public void setRefreshToken(String refreshToken) { this.refreshToken = refreshToken; }
+
     public String getUsername() { return username; }
     public void setUsername(String username) { this.username = username; }
 
@@ -0,0 +1,16 @@
+package com.inaf.authe_service.dto;
+
+import java.util.List;
+
+// Outcome of a bulk import: inserted and updated count products written (rows repeating a name
+// within the same chunk are merged); errors are capped, errorsTruncated tells whether some were dropped
+public record ProductImportReportDto(
+        long processed,
+        long inserted,
+        long updated,
+        long failed,
+        List<RowError> errors,
+        boolean errorsTruncated
+) {
+    public record RowError(long row, String message) {}
+}
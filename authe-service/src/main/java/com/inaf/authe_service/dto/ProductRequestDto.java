@@ -8,7 +8,8 @@ public record ProductRequestDto(
         @Size(min = 2, max = 100, message = "Product name must be between 2 and 100 characters")
         String name,
 
-        @Size(max = 500, message = "Description cannot exceed 500 characters")
+        // Même limite que la colonne products.description (VARCHAR(255))
+        @Size(max = 255, message = "Description cannot exceed 255 characters")
         String description,
 
         @NotNull(message = "Price is required")
@@ -0,0 +1,9 @@
+package com.inaf.authe_service.dto;
+
+// Searchable fields of a product, with its version to order concurrent updates
+public interface ProductSearchView {
+    Long getId();
+    String getName();
+    String getDescription();
+    Long getVersion();
+}
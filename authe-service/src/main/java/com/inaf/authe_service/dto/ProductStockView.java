@@ -0,0 +1,8 @@
+package com.inaf.authe_service.dto;
+
+// Read-only stock level of a product, with its version to order concurrent updates
+public interface ProductStockView {
+    Long getId();
+    Integer getQuantity();
+    Long getVersion();
+}
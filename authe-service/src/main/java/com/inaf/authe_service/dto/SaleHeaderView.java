@@ -0,0 +1,25 @@
+package com.inaf.authe_service.dto;
+
+import com.inaf.authe_service.Enum.PaymentMethod;
+import com.inaf.authe_service.Enum.SaleStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Projection en lecture seule des colonnes d'une vente (sans ses articles)
+public interface SaleHeaderView {
+    Long getId();
+    String getSaleNumber();
+    String getCustomerName();
+    String getCustomerEmail();
+    String getCustomerPhone();
+    SaleStatus getStatus();
+    BigDecimal getTotalAmount();
+    BigDecimal getTaxAmount();
+    BigDecimal getDiscountAmount();
+    PaymentMethod getPaymentMethod();
+    LocalDateTime getSaleDate();
+    LocalDateTime getCreatedAt();
+    LocalDateTime getUpdatedAt();
+    String getNotes();
+}
@@ -0,0 +1,14 @@
+package com.inaf.authe_service.dto;
+
+import java.math.BigDecimal;
+
+// Projection en lecture seule d'un article de vente, avec l'ID de sa vente pour le regroupement
+public interface SaleItemView {
+    Long getSaleId();
+    Long getId();
+    Long getProductId();
+    String getProductName();
+    Integer getQuantity();
+    BigDecimal getUnitPrice();
+    BigDecimal getSubtotal();
+}
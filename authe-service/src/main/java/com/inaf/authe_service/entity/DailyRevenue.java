@@ -0,0 +1,56 @@
+package com.inaf.authe_service.entity;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Chiffre d'affaires des ventes confirmées, cumulé par jour et par mode de paiement.
+ * Chaque couple (jour, mode) est réparti sur plusieurs bandes pour que les confirmations
+ * simultanées ne se bloquent pas toutes sur la même ligne ; les lectures somment les bandes.
+ */
+@Entity
+@Table(name = "daily_revenue")
+@IdClass(DailyRevenueId.class)
+public class DailyRevenue {
+
+    // Mode de paiement des ventes qui n'en ont pas
+    public static final String UNSPECIFIED_PAYMENT_METHOD = "UNSPECIFIED";
+
+    @Id
+    @Column(name = "revenue_day")
+    private LocalDate day;
+
+    @Id
+    @Column(name = "payment_method", length = 32)
+    private String paymentMethod;
+
+    @Id
+    @Column(name = "stripe")
+    private Integer stripe;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal revenue;
+
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+
+    // Constructeurs
+    public DailyRevenue() {}
+
+    // Getters et Setters
+    public LocalDate getDay() { return day; }
+    public void setDay(LocalDate day) { this.day = day; }
+
+    public String getPaymentMethod() { return paymentMethod; }
+    public void setPaymentMethod(String paymentMethod) { this.paymentMethod = paymentMethod; }
+
+    public Integer getStripe() { return stripe; }
+    public void setStripe(Integer stripe) { this.stripe = stripe; }
+
+    public BigDecimal getRevenue() { return revenue; }
+    public void setRevenue(BigDecimal revenue) { this.revenue = revenue; }
+
+    public Long getSaleCount() { return saleCount; }
+    public void setSaleCount(Long saleCount) { this.saleCount = saleCount; }
+}
@@ -0,0 +1,35 @@
+package com.inaf.authe_service.entity;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+// Clé de DailyRevenue : jour, mode de paiement et bande
+public class DailyRevenueId implements Serializable {
+
+    private LocalDate day;
+    private String paymentMethod;
+    private Integer stripe;
+
+    public DailyRevenueId() {}
+
+    public DailyRevenueId(LocalDate day, String paymentMethod, Integer stripe) {
+        this.day = day;
+        this.paymentMethod = paymentMethod;
+        this.stripe = stripe;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof DailyRevenueId that)) return false;
+        return Objects.equals(day, that.day)
+                && Objects.equals(paymentMethod, that.paymentMethod)
+                && Objects.equals(stripe, that.stripe);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(day, paymentMethod, stripe);
+    }
+}
@@ -2,17 +2,32 @@ package com.inaf.authe_service.entity;
 
 import com.inaf.authe_service.Enum.PaymentMethod;
 import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.util.SearchNormalizer;
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "sales")
+@Table(name = "sales", indexes = {
+        @Index(name = "idx_sales_customer_email_key", columnList = "customer_email_key"),
+        @Index(name = "idx_sales_customer_phone_key", columnList = "customer_phone_key")
+})
 public class Sale {
+
+    // Longueur maximale d'un mot du nom client dans l'index (les mots plus longs sont tronqués)
+    public static final int CUSTOMER_TOKEN_MAX_LENGTH = 64;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Séquence à allocation groupée : les identifiants sont connus avant l'INSERT, ce qui permet le batch JDBC
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sales_seq")
+    @SequenceGenerator(name = "sales_seq", sequenceName = "sales_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "sale_number", unique = true, nullable = false)
@@ -53,12 +68,37 @@ public class Sale {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     @OneToMany(mappedBy = "sale", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<SaleItem> saleItems = new ArrayList<>();
 
     @Column(columnDefinition = "TEXT")
     private String notes;
 
+    // Clés de recherche client normalisées, recalculées à chaque modification des coordonnées du client
+    @Column(name = "customer_name_key")
+    private String customerNameKey;
+
+    @Column(name = "customer_email_key")
+    private String customerEmailKey;
+
+    @Column(name = "customer_phone_key")
+    private String customerPhoneKey;
+
+    // Null pour les ventes antérieures à l'index, tant que CustomerSearchBackfill ne les a pas traitées
+    @Column(name = "customer_indexed")
+    private Boolean customerIndexed;
+
+    @ElementCollection
+    @CollectionTable(name = "sale_customer_tokens", joinColumns = @JoinColumn(name = "sale_id"),
+            indexes = @Index(name = "idx_sale_customer_tokens_token", columnList = "token"))
+    @Column(name = "token", nullable = false, length = CUSTOMER_TOKEN_MAX_LENGTH)
+    @BatchSize(size = 100)
+    private Set<String> customerNameTokens = new HashSet<>();
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -81,6 +121,7 @@ public class Sale {
         this.customerName = customerName;
         this.customerEmail = customerEmail;
         this.customerPhone = customerPhone;
+        refreshCustomerSearchKeys();
         this.status = SaleStatus.PENDING;
         this.totalAmount = BigDecimal.ZERO;
         this.taxAmount = BigDecimal.ZERO;
@@ -100,6 +141,24 @@ public class Sale {
         calculateTotalAmount();
     }
 
+    // Le nom normalisé est préfixé d'un espace : " mot" cible un début de mot avec LIKE
+    public void refreshCustomerSearchKeys() {
+        String normalizedName = SearchNormalizer.normalize(customerName);
+        this.customerNameKey = normalizedName.isEmpty() ? null : " " + normalizedName;
+        this.customerEmailKey = SearchNormalizer.normalizeEmail(customerEmail);
+        this.customerPhoneKey = SearchNormalizer.normalizePhone(customerPhone);
+
+        Set<String> tokens = SearchNormalizer.tokens(normalizedName).stream()
+                .map(token -> token.length() > CUSTOMER_TOKEN_MAX_LENGTH ? token.substring(0, CUSTOMER_TOKEN_MAX_LENGTH) : token)
+                .collect(Collectors.toSet());
+        // Ne toucher à la collection que si elle change, pour éviter de réécrire les lignes de l'index
+        if (!customerNameTokens.equals(tokens)) {
+            customerNameTokens.clear();
+            customerNameTokens.addAll(tokens);
+        }
+        this.customerIndexed = true;
+    }
+
     public void calculateTotalAmount() {
         BigDecimal subtotal = saleItems.stream()
                 .map(SaleItem::getSubtotal)
@@ -117,13 +176,22 @@ public class Sale {
     public void setSaleNumber(String saleNumber) { this.saleNumber = saleNumber; }
 
     public String getCustomerName() { return customerName; }
-    public void setCustomerName(String customerName) { this.customerName = customerName; }
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+        refreshCustomerSearchKeys();
+    }
 
     public String getCustomerEmail() { return customerEmail; }
-    public void setCustomerEmail(String customerEmail) { this.customerEmail = customerEmail; }
+    public void setCustomerEmail(String customerEmail) {
+        this.customerEmail = customerEmail;
+        refreshCustomerSearchKeys();
+    }
 
     public String getCustomerPhone() { return customerPhone; }
-    public void setCustomerPhone(String customerPhone) { this.customerPhone = customerPhone; }
+    public void setCustomerPhone(String customerPhone) {
+        this.customerPhone = customerPhone;
+        refreshCustomerSearchKeys();
+    }
 
     public SaleStatus getStatus() { return status; }
     public void setStatus(SaleStatus status) { this.status = status; }
@@ -155,5 +223,18 @@ public class Sale {
     public String getNotes() { return notes; }
     public void setNotes(String notes) { this.notes = notes; }
 
+    public Long getVersion() { return version; }
+    public void setVersion(Long version) { this.version = version; }
+
+    public String getCustomerNameKey() { return customerNameKey; }
+
+    public String getCustomerEmailKey() { return customerEmailKey; }
+
+    public String getCustomerPhoneKey() { return customerPhoneKey; }
+
+    public Boolean getCustomerIndexed() { return customerIndexed; }
+
+    public Set<String> getCustomerNameTokens() { return customerNameTokens; }
+
 
 }
@@ -7,7 +7,8 @@ import java.math.BigDecimal;
 @Table(name = "sale_items")
 public class SaleItem {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sale_items_seq")
+    @SequenceGenerator(name = "sale_items_seq", sequenceName = "sale_items_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -5,6 +5,7 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
 
@@ -17,7 +18,8 @@ public class User implements UserDetails {
     }
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = 50)
     private Long id;
 
     @Column(unique = true, nullable = false)
@@ -37,6 +39,12 @@ public class User implements UserDetails {
     private boolean accountNonLocked = true;
     private boolean credentialsNonExpired = true;
 
+    // Date du verrouillage automatique après trop d'échecs de connexion (null si verrouillage manuel)
+    private LocalDateTime lockedAt;
+
+    // Les tokens émis jusqu'à cette date ne font plus foi pour le rôle et le statut du compte
+    private LocalDateTime tokensValidAfter;
+
     public User() {}
 
     public User(String username, String password, String email) {
@@ -129,4 +137,20 @@ public class User implements UserDetails {
     public void setCredentialsNonExpired(boolean credentialsNonExpired) {
         this.credentialsNonExpired = credentialsNonExpired;
     }
+
+    public LocalDateTime getLockedAt() {
+        return lockedAt;
+    }
+
+    public void setLockedAt(LocalDateTime lockedAt) {
+        this.lockedAt = lockedAt;
+    }
+
+    public LocalDateTime getTokensValidAfter() {
+        return tokensValidAfter;
+    }
+
+    public void setTokensValidAfter(LocalDateTime tokensValidAfter) {
+        this.tokensValidAfter = tokensValidAfter;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,4 @@
+package com.inaf.authe_service.event;
+
+// Published when a product is created or updated
+public record ProductChangedEvent(Long id, String name, String description, Integer quantity, Long version) {}
@@ -0,0 +1,3 @@
+package com.inaf.authe_service.event;
+
+public record ProductDeletedEvent(Long id) {}
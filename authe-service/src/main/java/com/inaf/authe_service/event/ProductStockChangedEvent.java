@@ -0,0 +1,4 @@
+package com.inaf.authe_service.event;
+
+// Published after a stock movement, with the quantity and version read once the change was applied
+public record ProductStockChangedEvent(Long id, Integer quantity, Long version) {}
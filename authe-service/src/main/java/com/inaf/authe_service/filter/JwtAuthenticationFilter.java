@@ -1,6 +1,8 @@
 package com.inaf.authe_service.filter;
 
 import com.inaf.authe_service.service.JwtService;
+import com.inaf.authe_service.service.TokenBlacklistService;
+import com.inaf.authe_service.service.UserDetailsCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -22,17 +24,23 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService;
+    private final UserDetailsCache userDetailsCache;
+    private final TokenBlacklistService tokenBlacklistService;
 
     private static final List<String> PUBLIC_URLS = List.of(
             "/api/auth/login",
             "/api/auth/register",
+            "/api/auth/refresh",
             "/h2-console"
             // Ajoute ici d'autres URLs publiques si besoin
     );
 
-    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                                   UserDetailsCache userDetailsCache, TokenBlacklistService tokenBlacklistService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.userDetailsCache = userDetailsCache;
+        this.tokenBlacklistService = tokenBlacklistService;
     }
 
     @Override
@@ -61,10 +69,17 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         jwt = authHeader.substring(7);
         userEmail = jwtService.extractUsername(jwt);
 
+        // Token révoqué (déconnexion) ou refresh token : la requête continue sans authentification
+        if (jwtService.isRefreshToken(jwt) || tokenBlacklistService.isRevoked(jwtService.extractTokenId(jwt), jwtService.extractExpiration(jwt))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
         if (userEmail != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            UserDetails userDetails = this.userDetailsService.loadUserByUsername(userEmail);
+            UserDetails userDetails = resolveUserDetails(jwt, userEmail);
 
-            if (jwtService.isTokenValid(jwt, userDetails)) {
+            if (userDetails.isEnabled() && userDetails.isAccountNonLocked()
+                    && jwtService.isTokenValid(jwt, userDetails)) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         userDetails,
                         null,
@@ -78,6 +93,15 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    // Claims du token si elles sont encore à jour, sinon utilisateur chargé en base (avec cache)
+    private UserDetails resolveUserDetails(String jwt, String userEmail) {
+        if (jwtService.canAuthenticateStatelessly(jwt)
+                && !userDetailsCache.isInvalidatedSince(userEmail, jwtService.extractIssuedAt(jwt))) {
+            return jwtService.extractUserDetails(jwt);
+        }
+        return userDetailsCache.get(userEmail, userDetailsService::loadUserByUsername);
+    }
+
     private boolean isPublicUrl(String path) {
         return PUBLIC_URLS.stream().anyMatch(path::startsWith);
     }
@@ -0,0 +1,115 @@
+package com.inaf.authe_service.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inaf.authe_service.config.Workload;
+import com.inaf.authe_service.config.WorkloadClass;
+import com.inaf.authe_service.config.WorkloadContext;
+import com.inaf.authe_service.config.WorkloadProperties;
+import com.inaf.authe_service.service.WorkloadBulkhead;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Fait passer chaque requête d'un endpoint annoté {@link Workload} par le bulkhead de sa classe
+ * et fixe la classe de charge du thread pour le choix du pool de connexions.
+ * Une classe saturée répond 503 avec Retry-After, sans toucher aux autres classes.
+ * Pour un traitement asynchrone (export en flux), la place est gardée jusqu'à la fin de la réponse.
+ */
+@Component
+public class WorkloadBulkheadInterceptor implements AsyncHandlerInterceptor {
+
+    // Place prise pour la requête, libérée en fin de requête (après le redispatch async le cas échéant)
+    private static final String PERMIT_ATTRIBUTE = WorkloadBulkheadInterceptor.class.getName() + ".permit";
+
+    private final Map<WorkloadClass, WorkloadBulkhead> bulkheads = new EnumMap<>(WorkloadClass.class);
+    private final ObjectMapper objectMapper;
+
+    public WorkloadBulkheadInterceptor(WorkloadProperties properties, MeterRegistry meterRegistry,
+                                       ObjectMapper objectMapper) {
+        for (WorkloadClass workload : WorkloadClass.values()) {
+            WorkloadProperties.Limits limits = properties.limits(workload);
+            bulkheads.put(workload, new WorkloadBulkhead(workload, limits.getMaxConcurrent(),
+                    limits.getMaxQueued(), limits.getQueueTimeout(), meterRegistry));
+        }
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public boolean preHandle(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                             @NonNull Object handler) throws Exception {
+        WorkloadClass workload = workloadOf(handler);
+        if (workload == null) {
+            return true;
+        }
+
+        if (request.getAttribute(PERMIT_ATTRIBUTE) == null) {
+            WorkloadBulkhead bulkhead = bulkheads.get(workload);
+            if (!bulkhead.tryEnter()) {
+                reject(response);
+                return false;
+            }
+            request.setAttribute(PERMIT_ATTRIBUTE, bulkhead);
+        }
+        WorkloadContext.set(workload);
+        return true;
+    }
+
+    // Le thread Tomcat est rendu, la place reste prise jusqu'au redispatch final
+    @Override
+    public void afterConcurrentHandlingStarted(@NonNull HttpServletRequest request,
+                                               @NonNull HttpServletResponse response, @NonNull Object handler) {
+        WorkloadContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response,
+                                @NonNull Object handler, Exception ex) {
+        WorkloadContext.clear();
+        Object bulkhead = request.getAttribute(PERMIT_ATTRIBUTE);
+        if (bulkhead != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            ((WorkloadBulkhead) bulkhead).exit();
+        }
+    }
+
+    private WorkloadClass workloadOf(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return null;
+        }
+        // Un abonnement SSE occuperait sa place pendant toute la durée de la connexion
+        Class<?> returnType = handlerMethod.getMethod().getReturnType();
+        if (ResponseEntity.class.isAssignableFrom(returnType)) {
+            returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod()).getGeneric().resolve(Object.class);
+        }
+        if (ResponseBodyEmitter.class.isAssignableFrom(returnType)) {
+            return null;
+        }
+        Workload workload = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getMethod(), Workload.class);
+        if (workload == null) {
+            workload = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Workload.class);
+        }
+        return workload != null ? workload.value() : null;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", "Server busy, please retry later"));
+    }
+}
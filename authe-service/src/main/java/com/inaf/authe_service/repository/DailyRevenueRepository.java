@@ -0,0 +1,41 @@
+package com.inaf.authe_service.repository;
+
+import com.inaf.authe_service.entity.DailyRevenue;
+import com.inaf.authe_service.entity.DailyRevenueId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Repository
+public interface DailyRevenueRepository extends JpaRepository<DailyRevenue, DailyRevenueId> {
+
+    @Modifying
+    @Query("UPDATE DailyRevenue d SET d.revenue = d.revenue + :amount, d.saleCount = d.saleCount + :count " +
+            "WHERE d.day = :day AND d.paymentMethod = :paymentMethod AND d.stripe = :stripe")
+    int addToRollup(@Param("day") LocalDate day,
+                    @Param("paymentMethod") String paymentMethod,
+                    @Param("stripe") int stripe,
+                    @Param("amount") BigDecimal amount,
+                    @Param("count") long count);
+
+    @Query("SELECT SUM(d.revenue) FROM DailyRevenue d WHERE d.day BETWEEN :fromDay AND :toDay")
+    BigDecimal sumRevenueBetweenDays(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+
+    @Modifying
+    @Query("DELETE FROM DailyRevenue d")
+    int deleteAllRollups();
+
+    // Reconstruction complète à partir des ventes confirmées (une ligne par jour et par mode, bande 0)
+    @Modifying
+    @Query(value = "INSERT INTO daily_revenue (revenue_day, payment_method, stripe, revenue, sale_count) " +
+            "SELECT CAST(s.sale_date AS DATE), COALESCE(s.payment_method, '" + DailyRevenue.UNSPECIFIED_PAYMENT_METHOD + "'), " +
+            "0, SUM(s.total_amount), COUNT(*) FROM sales s WHERE s.status = 'CONFIRMED' " +
+            "GROUP BY CAST(s.sale_date AS DATE), COALESCE(s.payment_method, '" + DailyRevenue.UNSPECIFIED_PAYMENT_METHOD + "')",
+            nativeQuery = true)
+    int insertRollupsFromSales();
+}
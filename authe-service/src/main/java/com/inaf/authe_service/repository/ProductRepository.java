@@ -1,29 +1,105 @@
 package com.inaf.authe_service.repository;
 
+import com.inaf.authe_service.dto.ProductResponseDto;
+import com.inaf.authe_service.dto.ProductSearchView;
+import com.inaf.authe_service.dto.ProductStockView;
 import com.inaf.authe_service.entity.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    List<Product> findByCategory(String category);
+    // Read-only queries project straight into the response record, without managed entities
+    String PRODUCT_DTO_SELECT = "SELECT new com.inaf.authe_service.dto.ProductResponseDto(" +
+            "p.id, p.name, p.description, p.price, p.quantity, p.category, p.createdAt, p.updatedAt) FROM Product p";
 
-    List<Product> findByNameContainingIgnoreCase(String name);
+    String NAME_OR_DESCRIPTION_CONDITION = " WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%')) " +
+            "OR LOWER(p.description) LIKE LOWER(CONCAT('%', :description, '%'))";
 
-    @Query("SELECT p FROM Product p WHERE p.quantity < :threshold")
-    List<Product> findLowStockProducts(@Param("threshold") Integer threshold);
+    @Query(PRODUCT_DTO_SELECT + " WHERE p.id = :id")
+    Optional<ProductResponseDto> findDtoById(@Param("id") Long id);
 
-    Page<Product> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-            String name, String description, Pageable pageable);
+    @Query(PRODUCT_DTO_SELECT)
+    List<ProductResponseDto> findAllDtos();
+
+    @Query(value = PRODUCT_DTO_SELECT, countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<ProductResponseDto> findAllDtos(Pageable pageable);
+
+    // Keyset pagination on id: the page size comes from Pageable and no COUNT query is issued
+    @Query(PRODUCT_DTO_SELECT + " WHERE p.id > :afterId ORDER BY p.id")
+    List<ProductResponseDto> findDtosBySeekAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    // Server-side cursor for exports: must be consumed inside a transaction and closed after use
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(PRODUCT_DTO_SELECT + " ORDER BY p.id")
+    Stream<ProductResponseDto> streamAllDtos();
+
+    @Query(PRODUCT_DTO_SELECT + " WHERE p.category = :category")
+    List<ProductResponseDto> findByCategory(@Param("category") String category);
+
+    @Query(PRODUCT_DTO_SELECT + " WHERE p.id IN :ids")
+    List<ProductResponseDto> findDtosByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query(PRODUCT_DTO_SELECT + " WHERE LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<ProductResponseDto> findByNameContainingIgnoreCase(@Param("name") String name);
+
+    @Query(PRODUCT_DTO_SELECT + " WHERE p.quantity < :threshold")
+    List<ProductResponseDto> findLowStockProducts(@Param("threshold") Integer threshold);
+
+    // Server-side cursor ordered by id (LowStockTracker reconcile): consumed inside a transaction and closed after use
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.quantity AS quantity, p.version AS version FROM Product p ORDER BY p.id")
+    Stream<ProductStockView> streamAllStockViews();
+
+    @Query("SELECT p.id AS id, p.quantity AS quantity, p.version AS version FROM Product p WHERE p.id IN :ids")
+    List<ProductStockView> findStockViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Server-side cursor for the ProductSearchIndex build: consumed inside a transaction and closed after use
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.id AS id, p.name AS name, p.description AS description, p.version AS version FROM Product p")
+    Stream<ProductSearchView> streamAllSearchViews();
+
+    @Query(value = PRODUCT_DTO_SELECT + NAME_OR_DESCRIPTION_CONDITION,
+            countQuery = "SELECT COUNT(p) FROM Product p" + NAME_OR_DESCRIPTION_CONDITION)
+    Page<ProductResponseDto> findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
+            @Param("name") String name, @Param("description") String description, Pageable pageable);
 
     Optional<Product> findByNameIgnoreCase(String name);
 
     boolean existsByNameIgnoreCase(String name);
+
+    // Conditional decrement: returns 0 when the remaining stock is insufficient
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity - :quantity, p.version = p.version + 1, " +
+            "p.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE p.id = :id AND p.quantity >= :quantity")
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Product p SET p.quantity = p.quantity + :quantity, p.version = p.version + 1, " +
+            "p.updatedAt = CURRENT_TIMESTAMP " +
+            "WHERE p.id = :id")
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
 }
\ No newline at end of file
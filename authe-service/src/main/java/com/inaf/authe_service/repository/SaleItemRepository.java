@@ -1,11 +1,13 @@
 package com.inaf.authe_service.repository;
 
+import com.inaf.authe_service.dto.SaleItemView;
 import com.inaf.authe_service.entity.SaleItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -20,5 +22,10 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, Long> {
 
     @Query("SELECT SUM(si.quantity) FROM SaleItem si WHERE si.product.id = :productId AND si.sale.status = 'CONFIRMED'")
     Integer getTotalQuantitySoldByProduct(@Param("productId") Long productId);
+
+    @Query("SELECT si.sale.id AS saleId, si.id AS id, p.id AS productId, p.name AS productName, " +
+            "si.quantity AS quantity, si.unitPrice AS unitPrice, si.subtotal AS subtotal " +
+            "FROM SaleItem si JOIN si.product p WHERE si.sale.id IN :saleIds ORDER BY si.id")
+    List<SaleItemView> findViewsBySaleIdIn(@Param("saleIds") Collection<Long> saleIds);
 }
 
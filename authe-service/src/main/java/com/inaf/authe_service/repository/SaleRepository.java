@@ -1,46 +1,127 @@
 package com.inaf.authe_service.repository;
 
 import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.dto.SaleHeaderView;
 import com.inaf.authe_service.entity.Sale;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, Long> {
 
-    Optional<Sale> findBySaleNumber(String saleNumber);
+    // Colonnes de SaleHeaderView : les listes sont lues sans entités managées
+    String SALE_HEADER_SELECT = "SELECT s.id AS id, s.saleNumber AS saleNumber, s.customerName AS customerName, " +
+            "s.customerEmail AS customerEmail, s.customerPhone AS customerPhone, s.status AS status, " +
+            "s.totalAmount AS totalAmount, s.taxAmount AS taxAmount, s.discountAmount AS discountAmount, " +
+            "s.paymentMethod AS paymentMethod, s.saleDate AS saleDate, s.createdAt AS createdAt, " +
+            "s.updatedAt AS updatedAt, s.notes AS notes FROM Sale s";
 
-    List<Sale> findByStatus(SaleStatus status);
+    // Recherche client indexée : le mot le plus sélectif passe par l'index sale_customer_tokens,
+    // les autres mots sont vérifiés sur le nom normalisé des seules ventes candidates
+    String CUSTOMER_NAME_CONDITION = "s.id IN (SELECT t.id FROM Sale t JOIN t.customerNameTokens token " +
+            "WHERE token LIKE CONCAT(:tokenPrefix, '%')) AND s.customerNameKey LIKE :namePattern";
 
-    List<Sale> findByCustomerNameContainingIgnoreCase(String customerName);
+    String CUSTOMER_EMAIL_PREFIX_CONDITION = "s.customerEmailKey LIKE CONCAT(:emailPrefix, '%') ESCAPE '!'";
 
-    List<Sale> findByCustomerEmail(String customerEmail);
+    String CUSTOMER_SEARCH_CONDITION = " WHERE (" + CUSTOMER_NAME_CONDITION + ") OR " + CUSTOMER_EMAIL_PREFIX_CONDITION;
 
-    @Query("SELECT s FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate")
-    List<Sale> findBySaleDateBetween(@Param("startDate") LocalDateTime startDate,
-                                     @Param("endDate") LocalDateTime endDate);
+    // Les méthodes de lecture chargent les articles et leurs produits dans la même requête (pas de N+1)
+    @EntityGraph(attributePaths = {"saleItems", "saleItems.product"})
+    Optional<Sale> findWithItemsById(Long id);
 
-    @Query("SELECT s FROM Sale s WHERE s.totalAmount BETWEEN :minAmount AND :maxAmount")
-    List<Sale> findByTotalAmountBetween(@Param("minAmount") BigDecimal minAmount,
-                                        @Param("maxAmount") BigDecimal maxAmount);
+    @EntityGraph(attributePaths = {"saleItems", "saleItems.product"})
+    Optional<Sale> findBySaleNumber(String saleNumber);
 
     @Query("SELECT COUNT(s) FROM Sale s WHERE s.status = :status")
     Long countByStatus(@Param("status") SaleStatus status);
 
+    @Query("SELECT s.status, COUNT(s) FROM Sale s GROUP BY s.status")
+    List<Object[]> countGroupByStatus();
+
     @Query("SELECT SUM(s.totalAmount) FROM Sale s WHERE s.status = 'CONFIRMED' AND s.saleDate BETWEEN :startDate AND :endDate")
     BigDecimal getTotalRevenueByPeriod(@Param("startDate") LocalDateTime startDate,
                                        @Param("endDate") LocalDateTime endDate);
 
-    Page<Sale> findByCustomerNameContainingIgnoreCaseOrCustomerEmailContainingIgnoreCase(
-            String customerName, String customerEmail, Pageable pageable);
-}
+    // Borne supérieure exclue : complète les cumuls journaliers sur un début de période partiel
+    @Query("SELECT SUM(s.totalAmount) FROM Sale s WHERE s.status = 'CONFIRMED' AND s.saleDate >= :startDate AND s.saleDate < :endDate")
+    BigDecimal sumConfirmedRevenueFromUntil(@Param("startDate") LocalDateTime startDate,
+                                            @Param("endDate") LocalDateTime endDate);
+
+    // Projections pour les listes en lecture seule ; les articles sont chargés à part par SaleItemRepository
+    @Query(SALE_HEADER_SELECT)
+    List<SaleHeaderView> findAllHeaders();
+
+    @Query(value = SALE_HEADER_SELECT, countQuery = "SELECT COUNT(s) FROM Sale s")
+    Page<SaleHeaderView> findAllHeaders(Pageable pageable);
+
+    // Curseur côté serveur pour l'export : à consommer dans une transaction puis à fermer
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(SALE_HEADER_SELECT + " ORDER BY s.id")
+    Stream<SaleHeaderView> streamAllHeaders();
+
+    // Pagination par clé sur (saleDate, id) décroissants : la taille de page est passée via Pageable, sans COUNT
+    @Query(SALE_HEADER_SELECT + " ORDER BY s.saleDate DESC, s.id DESC")
+    List<SaleHeaderView> findFirstHeadersBySeek(Pageable pageable);
+
+    @Query(SALE_HEADER_SELECT + " WHERE s.saleDate < :saleDate OR (s.saleDate = :saleDate AND s.id < :id) " +
+            "ORDER BY s.saleDate DESC, s.id DESC")
+    List<SaleHeaderView> findHeadersBySeekAfter(@Param("saleDate") LocalDateTime saleDate,
+                                                @Param("id") Long id,
+                                                Pageable pageable);
 
+    @Query(SALE_HEADER_SELECT + " WHERE s.status = :status")
+    List<SaleHeaderView> findHeadersByStatus(@Param("status") SaleStatus status);
+
+    @Query(SALE_HEADER_SELECT + " WHERE " + CUSTOMER_NAME_CONDITION)
+    List<SaleHeaderView> findHeadersByCustomerName(@Param("tokenPrefix") String tokenPrefix,
+                                                   @Param("namePattern") String namePattern);
+
+    @Query(SALE_HEADER_SELECT + " WHERE s.saleDate BETWEEN :startDate AND :endDate")
+    List<SaleHeaderView> findHeadersBySaleDateBetween(@Param("startDate") LocalDateTime startDate,
+                                                      @Param("endDate") LocalDateTime endDate);
+
+    @Query(value = SALE_HEADER_SELECT + CUSTOMER_SEARCH_CONDITION,
+            countQuery = "SELECT COUNT(s) FROM Sale s" + CUSTOMER_SEARCH_CONDITION)
+    Page<SaleHeaderView> searchHeadersByCustomerNameOrEmail(@Param("tokenPrefix") String tokenPrefix,
+                                                            @Param("namePattern") String namePattern,
+                                                            @Param("emailPrefix") String emailPrefix,
+                                                            Pageable pageable);
+
+    @Query(value = SALE_HEADER_SELECT + " WHERE " + CUSTOMER_EMAIL_PREFIX_CONDITION,
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE " + CUSTOMER_EMAIL_PREFIX_CONDITION)
+    Page<SaleHeaderView> searchHeadersByCustomerEmailPrefix(@Param("emailPrefix") String emailPrefix, Pageable pageable);
+
+    @Query(value = SALE_HEADER_SELECT + " WHERE s.customerPhoneKey LIKE CONCAT(:phonePrefix, '%')",
+            countQuery = "SELECT COUNT(s) FROM Sale s WHERE s.customerPhoneKey LIKE CONCAT(:phonePrefix, '%')")
+    Page<SaleHeaderView> searchHeadersByCustomerPhonePrefix(@Param("phonePrefix") String phonePrefix, Pageable pageable);
+
+    // Ventes créées avant l'index client, à reprendre par lots
+    @Query("SELECT s.id FROM Sale s WHERE s.customerIndexed IS NULL ORDER BY s.id")
+    List<Long> findCustomerUnindexedIds(Pageable pageable);
+
+    // Ventes à archiver : antérieures à la date limite et dans un statut définitif
+    @Query("SELECT s.id FROM Sale s WHERE s.saleDate < :cutoff AND s.status IN :statuses ORDER BY s.saleDate")
+    List<Long> findArchivableIds(@Param("cutoff") LocalDateTime cutoff,
+                                 @Param("statuses") Collection<SaleStatus> statuses, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"saleItems", "saleItems.product"})
+    List<Sale> findWithItemsByIdIn(Collection<Long> ids);
+}
@@ -3,8 +3,11 @@ package com.inaf.authe_service.repository;
 
 import com.inaf.authe_service.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Repository
@@ -17,4 +20,7 @@ public interface UserRepository extends JpaRepository<User, Long> {
     boolean existsByUsername(String username);
 
     boolean existsByEmail(String email);
+
+    @Query("SELECT u.tokensValidAfter FROM User u WHERE u.email = :email")
+    Optional<LocalDateTime> findTokensValidAfterByEmail(@Param("email") String email);
 }
\ No newline at end of file
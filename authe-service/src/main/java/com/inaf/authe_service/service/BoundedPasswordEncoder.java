@@ -0,0 +1,91 @@
+package com.inaf.authe_service.service;
+
+import io.micrometer.core.instrument.Counter;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PasswordEncoder qui exécute le hachage et la vérification BCrypt sur un pool borné dédié,
+ * pour que les pics d'inscriptions et de connexions ne consomment pas tout le CPU des threads HTTP.
+ * Une file pleine ou un délai dépassé lève PasswordHashingUnavailableException.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("^\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}$");
+
+    private final PasswordEncoder delegate;
+    private final int strength;
+    private final ExecutorService executor;
+    private final long timeoutMillis;
+    private final Counter rejections;
+
+    public BoundedPasswordEncoder(PasswordEncoder delegate, int strength, ExecutorService executor,
+                                  long timeoutMillis, Counter rejections) {
+        this.delegate = delegate;
+        this.strength = strength;
+        this.executor = executor;
+        this.timeoutMillis = timeoutMillis;
+        this.rejections = rejections;
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return execute(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return execute(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    // Re-hachage dès que le coût stocké diffère du coût configuré, à la hausse comme à la baisse
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.matches() && Integer.parseInt(matcher.group(1)) != strength;
+    }
+
+    // Appelé à l'arrêt du contexte : le pool appartient à l'encodeur
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T execute(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejections.increment();
+            throw new PasswordHashingUnavailableException("Password hashing capacity exceeded", e);
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejections.increment();
+            throw new PasswordHashingUnavailableException("Password hashing timed out", e);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingUnavailableException("Password hashing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+}
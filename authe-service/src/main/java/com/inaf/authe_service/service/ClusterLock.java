@@ -0,0 +1,110 @@
+package com.inaf.authe_service.service;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Verrous partagés par toutes les instances de l'application, posés dans la base.
+ * Sous PostgreSQL : verrou consultatif (pg_try_advisory_lock) ou verrou de table.
+ * Sous H2, base embarquée d'une seule instance, un verrou local à la JVM suffit.
+ */
+@Component
+public class ClusterLock {
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, ReentrantLock> localLocks = new ConcurrentHashMap<>();
+    private volatile Boolean postgres;
+
+    public ClusterLock(DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Exécute task si aucune autre instance ne le fait déjà ; retourne false sans attendre sinon.
+    // Le verrou est tenu par une connexion dédiée pendant toute la tâche (qui peut enchaîner plusieurs transactions).
+    public boolean tryRun(String name, Runnable task) {
+        if (!isPostgres()) {
+            ReentrantLock lock = localLock(name);
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        try (Connection connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, "SELECT pg_try_advisory_lock(hashtext(?))", name)) {
+                return false;
+            }
+            try {
+                task.run();
+                return true;
+            } finally {
+                advisoryLock(connection, "SELECT pg_advisory_unlock(hashtext(?))", name);
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not take the cluster lock " + name, e);
+        }
+    }
+
+    // Verrou exclusif sur la table jusqu'à la fin de la transaction courante, en attendant qu'il se libère :
+    // les écritures concurrentes sur la table attendent aussi (sous H2, seuls les autres appelants attendent)
+    public void lockTableForTransaction(String table) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("A transaction is required to lock table " + table);
+        }
+        if (isPostgres()) {
+            jdbcTemplate.execute("LOCK TABLE " + table + " IN EXCLUSIVE MODE");
+            return;
+        }
+
+        ReentrantLock lock = localLock(table);
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+    }
+
+    private boolean advisoryLock(Connection connection, String sql, String name) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private ReentrantLock localLock(String name) {
+        return localLocks.computeIfAbsent(name, k -> new ReentrantLock());
+    }
+
+    private boolean isPostgres() {
+        Boolean result = postgres;
+        if (result == null) {
+            result = "PostgreSQL".equals(jdbcTemplate.execute(
+                    (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+            postgres = result;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.entity.Sale;
+import com.inaf.authe_service.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Calcule en arrière-plan les clés de recherche client des ventes créées avant l'index,
+ * par lots, chacun dans sa propre transaction. Les nouvelles ventes sont indexées à l'écriture.
+ * Ne retarde pas le démarrage ; une seule instance travaille à la fois ({@link ClusterLock}).
+ * Relancé périodiquement : une fois tout indexé, un passage ne coûte qu'une requête sur un index partiel,
+ * et il rattrape les ventes écrites par une instance d'une version antérieure pendant un déploiement progressif.
+ */
+@Component
+public class CustomerSearchBackfill {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerSearchBackfill.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_CONFLICTS = 10;
+
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ClusterLock clusterLock;
+
+    public CustomerSearchBackfill(SaleRepository saleRepository, PlatformTransactionManager transactionManager,
+                                  ClusterLock clusterLock) {
+        this.saleRepository = saleRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.clusterLock = clusterLock;
+    }
+
+    @Scheduled(initialDelayString = "${sales.customer-search.backfill-delay:10000}",
+            fixedDelayString = "${sales.customer-search.backfill-interval:600000}")
+    public void backfill() {
+        if (!clusterLock.tryRun("customer-search-backfill", this::indexPendingSales)) {
+            log.debug("Customer search backfill skipped: already running on another instance");
+        }
+    }
+
+    // Un échec n'est pas propagé : le passage suivant reprend là où celui-ci s'est arrêté
+    private void indexPendingSales() {
+        int conflicts = 0;
+        long total = 0;
+        while (true) {
+            Integer indexed;
+            try {
+                indexed = transactionTemplate.execute(status -> {
+                    List<Long> ids = saleRepository.findCustomerUnindexedIds(PageRequest.ofSize(BATCH_SIZE));
+                    saleRepository.findAllById(ids).forEach(Sale::refreshCustomerSearchKeys);
+                    return ids.size();
+                });
+            } catch (OptimisticLockingFailureException e) {
+                // Vente modifiée entre-temps (elle est alors déjà indexée) : on reprend le lot
+                if (++conflicts > MAX_CONFLICTS) {
+                    log.warn("Customer search backfill stopped after {} conflicts, {} sales indexed; retrying at next run",
+                            conflicts, total);
+                    return;
+                }
+                continue;
+            } catch (DataAccessException e) {
+                log.warn("Customer search backfill failed after {} sales indexed; retrying at next run", total, e);
+                return;
+            }
+            total += indexed != null ? indexed : 0;
+            if (indexed == null || indexed < BATCH_SIZE) {
+                if (total > 0) {
+                    log.info("Customer search backfill indexed {} sales", total);
+                }
+                return;
+            }
+        }
+    }
+}
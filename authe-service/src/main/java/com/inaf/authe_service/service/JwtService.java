@@ -1,29 +1,75 @@
 package com.inaf.authe_service.service;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 @Service
 public class JwtService {
 
+    // Claims décrivant l'utilisateur, qui permettent d'authentifier sans accès à la base
+    private static final String ROLES_CLAIM = "roles";
+    private static final String ENABLED_CLAIM = "enabled";
+    private static final String ACCOUNT_NON_LOCKED_CLAIM = "accountNonLocked";
+
+    // Type de token : un refresh token ne donne pas accès à l'API
+    private static final String TOKEN_TYPE_CLAIM = "type";
+    private static final String REFRESH_TOKEN_TYPE = "refresh";
+
+    // Entrées examinées pour choisir celle à évincer quand le cache des claims est plein
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
     @Value("${jwt.secret}")
     private String secretKey;
 
     @Value("${jwt.expiration}")
     private long jwtExpiration;
 
+    @Value("${jwt.refresh-token.expiration}")
+    private long refreshExpiration;
+
+    @Value("${jwt.claims-cache.max-size:10000}")
+    private int claimsCacheMaxSize;
+
+    @Value("${jwt.claims-cache.ttl:300000}")
+    private long claimsCacheTtl;
+
+    @Value("${security.jwt.stateless.enabled:true}")
+    private boolean statelessAuthenticationEnabled;
+
+    // Clé et parser construits une seule fois (le parser jjwt est thread-safe)
+    private Key signInKey;
+    private JwtParser jwtParser;
+
+    // Claims déjà vérifiées par token, jamais conservées au-delà de l'expiration du token
+    private final Map<String, CachedClaims> claimsCache = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
+        this.signInKey = Keys.hmacShaKeyFor(keyBytes);
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signInKey).build();
+    }
+
     // Extraire le username du token
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -37,7 +83,7 @@ public class JwtService {
 
     // Générer un token avec des claims personnalisées
     public String generateToken(Map<String, Object> extraClaims, UserDetails userDetails) {
-        return buildToken(extraClaims, userDetails, jwtExpiration);
+        return buildToken(userClaims(extraClaims, userDetails), userDetails, jwtExpiration);
     }
 
     // Générer un token simple
@@ -45,47 +91,117 @@ public class JwtService {
         return generateToken(new HashMap<>(), userDetails);
     }
 
+    // Générer un refresh token (longue durée, porte les mêmes claims utilisateur que le token d'accès)
+    public String generateRefreshToken(Map<String, Object> extraClaims, UserDetails userDetails) {
+        Map<String, Object> claims = userClaims(extraClaims, userDetails);
+        claims.put(TOKEN_TYPE_CLAIM, REFRESH_TOKEN_TYPE);
+        return buildToken(claims, userDetails, refreshExpiration);
+    }
+
+    private Map<String, Object> userClaims(Map<String, Object> extraClaims, UserDetails userDetails) {
+        Map<String, Object> claims = new HashMap<>(extraClaims);
+        claims.put(ROLES_CLAIM, userDetails.getAuthorities().stream().map(GrantedAuthority::getAuthority).toList());
+        claims.put(ENABLED_CLAIM, userDetails.isEnabled());
+        claims.put(ACCOUNT_NON_LOCKED_CLAIM, userDetails.isAccountNonLocked());
+        return claims;
+    }
+
     // Construire le token
     private String buildToken(Map<String, Object> extraClaims, UserDetails userDetails, long expiration) {
         return Jwts
                 .builder()
                 .setClaims(extraClaims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), SignatureAlgorithm.HS256)
+                .signWith(signInKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     // Valider le token
     public boolean isTokenValid(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
+        final Claims claims = extractAllClaims(token);
+        return claims.getSubject().equals(userDetails.getUsername()) && !claims.getExpiration().before(new Date());
+    }
+
+    public boolean isRefreshToken(String token) {
+        return REFRESH_TOKEN_TYPE.equals(extractAllClaims(token).get(TOKEN_TYPE_CLAIM, String.class));
+    }
+
+    // Le token porte-t-il les claims utilisateur nécessaires à une authentification sans base ?
+    public boolean canAuthenticateStatelessly(String token) {
+        return statelessAuthenticationEnabled && extractAllClaims(token).containsKey(ROLES_CLAIM);
+    }
+
+    public Date extractIssuedAt(String token) {
+        return extractClaim(token, Claims::getIssuedAt);
     }
 
-    // Vérifier si le token est expiré
-    private boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public String extractTokenId(String token) {
+        return extractClaim(token, Claims::getId);
     }
 
-    // Extraire la date d'expiration
-    private Date extractExpiration(String token) {
+    public Date extractExpiration(String token) {
         return extractClaim(token, Claims::getExpiration);
     }
 
-    // Extraire toutes les claims
+    // Reconstruire l'utilisateur à partir des claims du token
+    public UserDetails extractUserDetails(String token) {
+        Claims claims = extractAllClaims(token);
+        List<?> roles = claims.get(ROLES_CLAIM, List.class);
+        return User.withUsername(claims.getSubject())
+                .password("")
+                .authorities(roles.stream().map(role -> new SimpleGrantedAuthority(String.valueOf(role))).toList())
+                .disabled(!Boolean.TRUE.equals(claims.get(ENABLED_CLAIM, Boolean.class)))
+                .accountLocked(!Boolean.TRUE.equals(claims.get(ACCOUNT_NON_LOCKED_CLAIM, Boolean.class)))
+                .build();
+    }
+
+    // Extraire toutes les claims (signature vérifiée une seule fois par token et par fenêtre de cache)
     private Claims extractAllClaims(String token) {
-        return Jwts
-                .parserBuilder()
-                .setSigningKey(getSignInKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        long now = System.currentTimeMillis();
+        CachedClaims cached = claimsCache.get(token);
+        if (cached != null) {
+            if (cached.expiresAt() > now) {
+                return cached.claims();
+            }
+            claimsCache.remove(token, cached);
+        }
+
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        cacheClaims(token, claims, now);
+        return claims;
     }
 
-    // Obtenir la clé de signature
-    private Key getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
+    private void cacheClaims(String token, Claims claims, long now) {
+        long expiresAt = now + claimsCacheTtl;
+        if (claims.getExpiration() != null) {
+            expiresAt = Math.min(expiresAt, claims.getExpiration().getTime());
+        }
+        if (claimsCache.size() >= claimsCacheMaxSize) {
+            evictOne();
+        }
+        claimsCache.put(token, new CachedClaims(claims, expiresAt));
     }
+
+    // Cache plein : retire, parmi les premières entrées dans l'ordre du hachage, celle qui expire le plus tôt.
+    // Coût constant par insertion, au lieu d'un parcours complet du cache à chaque miss
+    private void evictOne() {
+        Map.Entry<String, CachedClaims> oldest = null;
+        int sampled = 0;
+        for (Map.Entry<String, CachedClaims> entry : claimsCache.entrySet()) {
+            if (oldest == null || entry.getValue().expiresAt() < oldest.getValue().expiresAt()) {
+                oldest = entry;
+            }
+            if (++sampled >= EVICTION_SAMPLE_SIZE) {
+                break;
+            }
+        }
+        if (oldest != null) {
+            claimsCache.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    private record CachedClaims(Claims claims, long expiresAt) {}
 }
\ No newline at end of file
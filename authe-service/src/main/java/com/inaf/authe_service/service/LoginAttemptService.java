@@ -0,0 +1,277 @@
+package com.inaf.authe_service.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Limiteur des tentatives de connexion, par email et par adresse IP.
+ * Les échecs sont comptés dans une fenêtre glissante approchée (fenêtre courante + fenêtre précédente pondérée).
+ * Le refus rapide (429) s'appuie sur deux count-min sketches à deux lignes, l'un pour les emails, l'autre
+ * pour les IP : mémoire fixe quel que soit le nombre de clés, sans verrou. Une collision ne peut que
+ * surestimer un compteur, jamais le sous-estimer.
+ * Le verrouillage du compte, lui, exige un compte exact : les emails en échec récent sont suivis dans une table
+ * bornée (les moins récemment vus sont évincés), remise à zéro par une connexion réussie. Une vague d'échecs
+ * sur des millions d'emails sature les sketches mais ne verrouille aucun compte.
+ */
+@Service
+public class LoginAttemptService {
+
+    private static final int ROWS = 2;
+
+    private final UserService userService;
+    // Horloge en millisecondes (remplaçable dans les tests)
+    private final LongSupplier clock;
+
+    @Value("${security.brute-force.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.brute-force.max-attempts:5}")
+    private int maxAttemptsPerEmail;
+
+    @Value("${security.brute-force.max-attempts-per-ip:50}")
+    private int maxAttemptsPerIp;
+
+    @Value("${security.brute-force.lockout-duration:900000}")
+    private long window;
+
+    @Value("${security.brute-force.email-sketch-width:524288}")
+    private int emailSketchWidth;
+
+    @Value("${security.brute-force.ip-sketch-width:65536}")
+    private int ipSketchWidth;
+
+    @Value("${security.brute-force.tracked-emails:100000}")
+    private int trackedEmailsMaxSize;
+
+    @Value("${security.account.max-login-attempts:5}")
+    private int maxLoginAttemptsBeforeLock;
+
+    private Sketch emailSketch;
+    private Sketch ipSketch;
+    // Compte exact par email, ordre d'accès : l'entrée la moins récemment vue est évincée en premier
+    private Map<String, FailureCount> trackedEmails;
+    // Graine aléatoire : les collisions ne sont pas prévisibles depuis l'extérieur
+    private final long seed = ThreadLocalRandom.current().nextLong();
+
+    @Autowired
+    public LoginAttemptService(UserService userService) {
+        this(userService, System::currentTimeMillis);
+    }
+
+    LoginAttemptService(UserService userService, LongSupplier clock) {
+        this.userService = userService;
+        this.clock = clock;
+    }
+
+    @PostConstruct
+    void init() {
+        this.emailSketch = new Sketch(emailSketchWidth);
+        this.ipSketch = new Sketch(ipSketchWidth);
+        this.trackedEmails = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, FailureCount> eldest) {
+                return size() > trackedEmailsMaxSize;
+            }
+        };
+    }
+
+    // Vérifié avant toute authentification, pour ne pas dépenser un calcul BCrypt sur une clé bloquée.
+    // Un email suivi est jugé sur son compte exact ; le sketch ne sert que pour les emails évincés ou inconnus
+    public boolean isBlocked(String email, String clientIp) {
+        if (!enabled) {
+            return false;
+        }
+        long now = clock.getAsLong();
+        if (ipSketch.estimate(ipKey(clientIp), now) >= maxAttemptsPerIp) {
+            return true;
+        }
+        String key = emailKey(email);
+        Long exact = trackedFailures(key, now);
+        return (exact != null ? exact : emailSketch.estimate(key, now)) >= maxAttemptsPerEmail;
+    }
+
+    public void loginFailed(String email, String clientIp) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        String key = emailKey(email);
+        emailSketch.increment(key, now);
+        ipSketch.increment(ipKey(clientIp), now);
+
+        if (recordFailure(key, now) >= maxLoginAttemptsBeforeLock) {
+            userService.lockAccount(email);
+        }
+    }
+
+    // Une connexion réussie efface les échecs précédents de l'email
+    public void loginSucceeded(String email) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        String key = emailKey(email);
+        synchronized (trackedEmails) {
+            FailureCount count = trackedEmails.get(key);
+            if (count != null) {
+                count.reset();
+            } else if (emailSketch.estimate(key, now) > 0) {
+                // Sans entrée, le sketch (qui ne décroît pas) compterait encore ces échecs
+                trackedEmails.put(key, new FailureCount());
+            }
+        }
+    }
+
+    // Secondes jusqu'à la prochaine fenêtre, pour l'en-tête Retry-After
+    public long retryAfterSeconds() {
+        long now = clock.getAsLong();
+        return Math.max(1, (window - now % window) / 1000);
+    }
+
+    private String emailKey(String email) {
+        return "e:" + (email == null ? "" : email.toLowerCase());
+    }
+
+    private String ipKey(String clientIp) {
+        return "ip:" + clientIp;
+    }
+
+    private Long trackedFailures(String key, long now) {
+        synchronized (trackedEmails) {
+            FailureCount count = trackedEmails.get(key);
+            return count != null ? count.estimate(now) : null;
+        }
+    }
+
+    private long recordFailure(String key, long now) {
+        synchronized (trackedEmails) {
+            FailureCount count = trackedEmails.computeIfAbsent(key, k -> new FailureCount());
+            count.increment(now);
+            return count.estimate(now);
+        }
+    }
+
+    // La fenêtre précédente compte au prorata de la part encore couverte par la fenêtre glissante
+    private long weighted(long current, long previous, long now) {
+        long remaining = window - now % window;
+        return current + previous * remaining / window;
+    }
+
+    // FNV-1a 64 bits avec graine, suivi du finaliseur de SplitMix64
+    private long hash(String key) {
+        long hash = 0xcbf29ce484222325L ^ seed;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash = (hash ^ (hash >>> 30)) * 0xbf58476d1ce4e5b9L;
+        hash = (hash ^ (hash >>> 27)) * 0x94d049bb133111ebL;
+        return hash ^ (hash >>> 31);
+    }
+
+    // Compte exact d'un email sur la fenêtre courante et la précédente ; accès sous le verrou de trackedEmails
+    private final class FailureCount {
+
+        private long windowIndex;
+        private long current;
+        private long previous;
+
+        void increment(long now) {
+            roll(now / window);
+            current++;
+        }
+
+        long estimate(long now) {
+            roll(now / window);
+            return weighted(current, previous, now);
+        }
+
+        void reset() {
+            current = 0;
+            previous = 0;
+        }
+
+        private void roll(long index) {
+            if (index != windowIndex) {
+                previous = index == windowIndex + 1 ? current : 0;
+                current = 0;
+                windowIndex = index;
+            }
+        }
+    }
+
+    private final class Sketch {
+
+        // Par ligne et par colonne, deux cases (fenêtres paires / impaires) contenant (indice de fenêtre << 32 | compteur)
+        private final AtomicLongArray counters;
+        private final int columnMask;
+
+        Sketch(int requestedWidth) {
+            int width = Integer.highestOneBit(Math.max(1, requestedWidth - 1)) << 1;
+            this.columnMask = width - 1;
+            this.counters = new AtomicLongArray(ROWS * width * 2);
+        }
+
+        // Incrémente la clé dans chaque ligne et retourne l'estimation glissante après incrément
+        long increment(String key, long now) {
+            long windowIndex = now / window;
+            long hash = hash(key);
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < ROWS; row++) {
+                int column = column(hash, row);
+                long current = incrementSlot(slot(row, column, windowIndex), windowIndex);
+                long previous = readSlot(slot(row, column, windowIndex - 1), windowIndex - 1);
+                estimate = Math.min(estimate, weighted(current, previous, now));
+            }
+            return estimate;
+        }
+
+        long estimate(String key, long now) {
+            long windowIndex = now / window;
+            long hash = hash(key);
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < ROWS; row++) {
+                int column = column(hash, row);
+                long current = readSlot(slot(row, column, windowIndex), windowIndex);
+                long previous = readSlot(slot(row, column, windowIndex - 1), windowIndex - 1);
+                estimate = Math.min(estimate, weighted(current, previous, now));
+            }
+            return estimate;
+        }
+
+        private long incrementSlot(int slot, long windowIndex) {
+            long tag = windowIndex << 32;
+            while (true) {
+                long value = counters.get(slot);
+                long next = (value & 0xFFFFFFFF00000000L) == tag
+                        ? value + ((value & 0xFFFFFFFFL) < 0xFFFFFFFFL ? 1 : 0)
+                        : tag | 1;
+                if (counters.compareAndSet(slot, value, next)) {
+                    return next & 0xFFFFFFFFL;
+                }
+            }
+        }
+
+        // Une case qui appartient à une autre fenêtre est périmée : elle compte pour zéro
+        private long readSlot(int slot, long windowIndex) {
+            long value = counters.get(slot);
+            return (value & 0xFFFFFFFF00000000L) == windowIndex << 32 ? value & 0xFFFFFFFFL : 0;
+        }
+
+        private int slot(int row, int column, long windowIndex) {
+            return ((row * (columnMask + 1) + column) << 1) | (int) (windowIndex & 1);
+        }
+
+        private int column(long hash, int row) {
+            return (int) (row == 0 ? hash : hash >>> 32) & columnMask;
+        }
+    }
+}
@@ -0,0 +1,354 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.dto.ProductStockView;
+import com.inaf.authe_service.event.ProductChangedEvent;
+import com.inaf.authe_service.event.ProductDeletedEvent;
+import com.inaf.authe_service.event.ProductStockChangedEvent;
+import com.inaf.authe_service.repository.ProductRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Products ordered by stock quantity, kept in memory so that threshold queries cost O(log n + k).
+ * Updated after commit from product and stock events; the version carried by each event
+ * discards updates that arrive out of order. A periodic reconcile reloads the quantities to pick up
+ * the changes made by other instances or by bulk SQL, and drops the products deleted meanwhile.
+ * Subscribers are notified over Server-Sent Events when a product crosses their threshold.
+ * Subscriptions are capped, expire after a timeout and receive a heartbeat comment so dead connections
+ * are detected. Events go through a small bounded outbox per subscriber, drained by a sender pool:
+ * a subscriber whose outbox overflows or whose send stays blocked is dropped without delaying the others.
+ */
+@Component
+public class LowStockTracker {
+
+    private static final int SENDER_THREADS = 4;
+    // Events queued for a subscriber that is not reading; beyond that it is dropped
+    private static final int OUTBOX_CAPACITY = 32;
+
+    private static final Comparator<StockEntry> BY_QUANTITY = Comparator.comparingInt(StockEntry::quantity)
+            .thenComparingLong(StockEntry::id);
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final NavigableSet<StockEntry> byQuantity = new ConcurrentSkipListSet<>(BY_QUANTITY);
+    // Ordered by id, so that a reconcile finds deleted products by walking it alongside the id-ordered cursor
+    private final ConcurrentNavigableMap<Long, StockEntry> entries = new ConcurrentSkipListMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Sends are blocking writes: each subscriber is drained by at most one sender at a time, and a write
+    // to a client that stopped reading ends with the connector's write timeout
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS,
+            new CustomizableThreadFactory("low-stock-sse-"));
+    private volatile boolean ready;
+    // Ids changed by events while a reload is running: the reload leaves them alone
+    private volatile Set<Long> changedDuringReload;
+
+    @Value("${products.low-stock.max-subscribers:100}")
+    private int maxSubscribers;
+
+    @Value("${products.low-stock.subscription-timeout:1800000}")
+    private long subscriptionTimeout;
+
+    @Value("${products.low-stock.send-timeout:10000}")
+    private long sendTimeout;
+
+    public LowStockTracker(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${products.low-stock.reconcile-interval:900000}",
+            fixedDelayString = "${products.low-stock.reconcile-interval:900000}")
+    public void reconcile() {
+        rebuild();
+    }
+
+    // Subscribers are notified of the crossings found by a reconcile, not of the initial load.
+    // The products are read through an id-ordered cursor: memory stays flat whatever the catalogue size
+    public synchronized void rebuild() {
+        Set<Long> changed = ConcurrentHashMap.newKeySet();
+        changedDuringReload = changed;
+        try {
+            boolean notify = ready;
+            readOnlyTransaction.executeWithoutResult(status -> {
+                long previousId = Long.MIN_VALUE;
+                try (Stream<ProductStockView> stocks = productRepository.streamAllStockViews()) {
+                    Iterator<ProductStockView> iterator = stocks.iterator();
+                    while (iterator.hasNext()) {
+                        ProductStockView stock = iterator.next();
+                        removeMissing(entries.subMap(previousId, false, stock.getId(), false), changed);
+                        if (!changed.contains(stock.getId())) {
+                            update(stock.getId(), stock.getQuantity(), stock.getVersion(), notify);
+                        }
+                        previousId = stock.getId();
+                    }
+                }
+                removeMissing(entries.tailMap(previousId, false), changed);
+            });
+        } finally {
+            changedDuringReload = null;
+        }
+        ready = true;
+    }
+
+    // Tracked ids absent from the cursor between two consecutive rows: deleted outside the event flow
+    private void removeMissing(Map<Long, StockEntry> range, Set<Long> changed) {
+        for (Long id : range.keySet()) {
+            if (!changed.contains(id)) {
+                remove(id);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        markChanged(event.id());
+        update(event.id(), event.quantity(), event.version(), true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStockChanged(ProductStockChangedEvent event) {
+        markChanged(event.id());
+        update(event.id(), event.quantity(), event.version(), true);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProductDeleted(ProductDeletedEvent event) {
+        markChanged(event.id());
+        remove(event.id());
+    }
+
+    // Product ids with quantity < threshold, lowest stock first
+    public List<Long> productIdsBelow(int threshold) {
+        return byQuantity.headSet(new StockEntry(Long.MIN_VALUE, threshold, 0L), false).stream()
+                .map(StockEntry::id)
+                .toList();
+    }
+
+    public synchronized SseEmitter subscribe(int threshold) {
+        if (subscriptions.size() >= maxSubscribers) {
+            throw new TooManySubscribersException("Too many low-stock subscribers");
+        }
+        SseEmitter emitter = new SseEmitter(subscriptionTimeout);
+        Subscription subscription = new Subscription(emitter, threshold);
+        subscriptions.add(subscription);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(error -> subscriptions.remove(subscription));
+        return emitter;
+    }
+
+    // Also detects the subscribers that stopped reading: a send blocked for too long drops the subscriber
+    @Scheduled(fixedDelayString = "${products.low-stock.heartbeat-interval:15000}")
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        for (Subscription subscription : subscriptions) {
+            if (subscription.isBlockedSince(now - sendTimeout)
+                    || !subscription.offer(SseEmitter.event().comment("heartbeat"))) {
+                drop(subscription, null);
+            }
+        }
+    }
+
+    private void markChanged(Long id) {
+        Set<Long> changed = changedDuringReload;
+        if (changed != null && id != null) {
+            changed.add(id);
+        }
+    }
+
+    private void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        entries.computeIfPresent(id, (key, entry) -> {
+            byQuantity.remove(entry);
+            return null;
+        });
+    }
+
+    private void update(Long id, Integer quantity, Long version, boolean notify) {
+        if (id == null || quantity == null) {
+            return;
+        }
+        long newVersion = version != null ? version : 0L;
+        StockEntry[] previous = new StockEntry[1];
+        StockEntry updated = entries.compute(id, (key, current) -> {
+            if (current != null && current.version() > newVersion) {
+                return current;
+            }
+            previous[0] = current;
+            StockEntry next = new StockEntry(id, quantity, newVersion);
+            if (current != null) {
+                byQuantity.remove(current);
+            }
+            byQuantity.add(next);
+            return next;
+        });
+
+        if (notify && previous[0] != null && previous[0].quantity() != updated.quantity() && !subscriptions.isEmpty()) {
+            notifyCrossings(id, previous[0].quantity(), updated.quantity());
+        }
+    }
+
+    private void notifyCrossings(Long id, int oldQuantity, int newQuantity) {
+        for (Subscription subscription : subscriptions) {
+            int threshold = subscription.threshold();
+            String eventName = null;
+            if (oldQuantity >= threshold && newQuantity < threshold) {
+                eventName = "low-stock";
+            } else if (oldQuantity < threshold && newQuantity >= threshold) {
+                eventName = "restocked";
+            }
+            if (eventName == null) {
+                continue;
+            }
+            // Only queued here: the committing thread never waits for a client
+            if (!subscription.offer(SseEmitter.event()
+                    .name(eventName)
+                    .data(Map.of("productId", id, "quantity", newQuantity, "threshold", threshold)))) {
+                drop(subscription, null);
+            }
+        }
+    }
+
+    private void drop(Subscription subscription, Throwable error) {
+        subscriptions.remove(subscription);
+        subscription.close(error);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        senders.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.close(null));
+    }
+
+    private record StockEntry(long id, int quantity, long version) {}
+
+    private final class Subscription {
+
+        private final SseEmitter emitter;
+        private final int threshold;
+        private final Queue<SseEmitter.SseEventBuilder> outbox = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+        private Throwable closeError;
+        // Start of the send in progress, 0 when idle
+        private volatile long sendingSince;
+
+        private Subscription(SseEmitter emitter, int threshold) {
+            this.emitter = emitter;
+            this.threshold = threshold;
+        }
+
+        int threshold() {
+            return threshold;
+        }
+
+        boolean isBlockedSince(long time) {
+            long since = sendingSince;
+            return since != 0 && since < time;
+        }
+
+        // false when the outbox is full: the subscriber is not keeping up
+        synchronized boolean offer(SseEmitter.SseEventBuilder event) {
+            if (closed) {
+                return true;
+            }
+            if (outbox.size() >= OUTBOX_CAPACITY) {
+                return false;
+            }
+            outbox.add(event);
+            if (!draining) {
+                draining = true;
+                senders.execute(this::drain);
+            }
+            return true;
+        }
+
+        private void drain() {
+            while (true) {
+                SseEmitter.SseEventBuilder event;
+                synchronized (this) {
+                    event = closed ? null : outbox.poll();
+                    if (event == null) {
+                        draining = false;
+                        if (closed) {
+                            complete();
+                        }
+                        return;
+                    }
+                }
+                sendingSince = System.currentTimeMillis();
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    drop(this, e);
+                } finally {
+                    sendingSince = 0;
+                }
+            }
+        }
+
+        // A send in progress holds the emitter lock: the sender completes the emitter once it returns
+        void close(Throwable error) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                closeError = error;
+                outbox.clear();
+                if (draining) {
+                    return;
+                }
+            }
+            complete();
+        }
+
+        private void complete() {
+            if (closeError != null) {
+                emitter.completeWithError(closeError);
+            } else {
+                emitter.complete();
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.inaf.authe_service.service;
+
+/**
+ * Le pool de hachage des mots de passe est saturé (file pleine ou délai dépassé).
+ * Les contrôleurs la traduisent en 503 : le client peut réessayer plus tard.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+
+    public PasswordHashingUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,408 @@
+package com.inaf.authe_service.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inaf.authe_service.dto.ProductImportReportDto;
+import com.inaf.authe_service.dto.ProductRequestDto;
+import com.inaf.authe_service.entity.Product;
+import com.inaf.authe_service.util.CsvReader;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Streaming product import (CSV or NDJSON).
+ * <ul>
+ *     <li>Rows are read one at a time and validated with the same constraints as {@code POST /api/products}.</li>
+ *     <li>Names are unique regardless of case (unique index on {@code lower(name)}). A map preloaded from the
+ *     catalogue is only a pre-filter: a known name updates the product by id, any other name is upserted on the
+ *     index, so a product created meanwhile by another request or import is updated rather than duplicated
+ *     (within a file, the last row for a name wins).</li>
+ *     <li>Rows are written through JDBC batches, one transaction per chunk; when a constraint rejects a chunk
+ *     it is retried in halves so that only the failing rows are reported and skipped.</li>
+ * </ul>
+ * Memory depends on the catalogue size and the chunk size, not on the size of the file.
+ */
+@Component
+public class ProductBulkImporter {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final List<String> CSV_COLUMNS = List.of("name", "description", "price", "quantity", "category");
+
+    // Both upserts take (id, name, description, price, quantity, category, created_at, updated_at);
+    // the id, reserved from the sequence, is only used when the row is inserted
+    private static final String POSTGRESQL_UPSERT_SQL = "INSERT INTO products " +
+            "(id, name, description, price, quantity, category, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0) " +
+            "ON CONFLICT (lower(name)) DO UPDATE SET description = EXCLUDED.description, price = EXCLUDED.price, " +
+            "quantity = EXCLUDED.quantity, category = EXCLUDED.category, updated_at = EXCLUDED.updated_at, " +
+            "version = products.version + 1";
+    // H2 has no ON CONFLICT on an expression: MERGE on the generated name_key column (V6)
+    private static final String H2_UPSERT_SQL = "MERGE INTO products p USING (SELECT " +
+            "CAST(? AS BIGINT) AS id, CAST(? AS VARCHAR(255)) AS name, CAST(? AS VARCHAR(255)) AS description, " +
+            "CAST(? AS NUMERIC(10, 2)) AS price, CAST(? AS INTEGER) AS quantity, CAST(? AS VARCHAR(255)) AS category, " +
+            "CAST(? AS TIMESTAMP(6)) AS created_at, CAST(? AS TIMESTAMP(6)) AS updated_at) s " +
+            "ON p.name_key = LOWER(s.name) " +
+            "WHEN MATCHED THEN UPDATE SET description = s.description, price = s.price, quantity = s.quantity, " +
+            "category = s.category, updated_at = s.updated_at, version = p.version + 1 " +
+            "WHEN NOT MATCHED THEN INSERT (id, name, description, price, quantity, category, created_at, updated_at, version) " +
+            "VALUES (s.id, s.name, s.description, s.price, s.quantity, s.category, s.created_at, s.updated_at, 0)";
+    private static final String UPDATE_SQL = "UPDATE products " +
+            "SET description = ?, price = ?, quantity = ?, category = ?, updated_at = ?, version = version + 1 " +
+            "WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final ProductSearchIndex productSearchIndex;
+    private final LowStockTracker lowStockTracker;
+    private final String nextProductIdSql;
+    private final String upsertSql;
+
+    @Value("${products.import.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${products.import.max-reported-errors:100}")
+    private int maxReportedErrors;
+
+    public ProductBulkImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                               EntityManagerFactory entityManagerFactory, ObjectMapper objectMapper, Validator validator,
+                               ProductSearchIndex productSearchIndex, LowStockTracker lowStockTracker) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.productSearchIndex = productSearchIndex;
+        this.lowStockTracker = lowStockTracker;
+        Dialect dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.nextProductIdSql = dialect.getSequenceSupport().getSequenceNextValString(Product.ID_SEQUENCE);
+        this.upsertSql = dialect instanceof PostgreSQLDialect ? POSTGRESQL_UPSERT_SQL : H2_UPSERT_SQL;
+    }
+
+    public ProductImportReportDto importProducts(InputStream inputStream, Format format) {
+        Import run = new Import(loadProductIdsByName());
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            if (format == Format.CSV) {
+                readCsv(reader, run);
+            } else {
+                readNdjson(reader, run);
+            }
+            run.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product import failed", e);
+        } finally {
+            // Imported rows bypass the entity events, so the in-memory views are reloaded
+            if (run.inserted + run.updated > 0) {
+                productSearchIndex.rebuild();
+                lowStockTracker.rebuild();
+            }
+        }
+        return run.report();
+    }
+
+    private Map<String, Long> loadProductIdsByName() {
+        Map<String, Long> ids = new HashMap<>();
+        jdbcTemplate.query("SELECT id, name FROM products",
+                rs -> { ids.put(nameKey(rs.getString(2)), rs.getLong(1)); });
+        return ids;
+    }
+
+    private void readCsv(BufferedReader reader, Import run) throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readRecord();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            // A byte order mark may precede the first column name
+            columns.put(header.get(i).replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!columns.keySet().containsAll(List.of("name", "price", "quantity"))) {
+            throw new RuntimeException("CSV header must contain the columns " + CSV_COLUMNS);
+        }
+
+        long row = 0;
+        List<String> record;
+        while ((record = csv.readRecord()) != null) {
+            row++;
+            try {
+                run.accept(row, new ProductRequestDto(
+                        field(record, columns, "name"),
+                        field(record, columns, "description"),
+                        decimalField(record, columns, "price"),
+                        integerField(record, columns, "quantity"),
+                        field(record, columns, "category")));
+            } catch (NumberFormatException e) {
+                run.reject(row, "Invalid number: " + e.getMessage());
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Import run) throws IOException {
+        long row = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            row++;
+            try {
+                run.accept(row, objectMapper.readValue(line, ProductRequestDto.class));
+            } catch (JsonProcessingException e) {
+                run.reject(row, "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static BigDecimal decimalField(List<String> record, Map<String, Integer> columns, String column) {
+        String value = field(record, columns, column);
+        return value == null ? null : new BigDecimal(value);
+    }
+
+    private static Integer integerField(List<String> record, Map<String, Integer> columns, String column) {
+        String value = field(record, columns, column);
+        return value == null ? null : Integer.valueOf(value);
+    }
+
+    private static String nameKey(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // State of one import: the name map, the current chunk and the running report
+    private class Import {
+
+        private final Map<String, Long> productIdsByName;
+        // Pending rows of the current chunk, keyed by name so that a later row replaces an earlier one
+        private final Map<String, PendingRow> inserts = new LinkedHashMap<>();
+        private final Map<Long, PendingRow> updates = new LinkedHashMap<>();
+        private final List<ProductImportReportDto.RowError> errors = new ArrayList<>();
+        // Block of ids reserved from the product sequence, shared with Hibernate's pooled optimizer
+        private long nextId = 1;
+        private long maxId = 0;
+        private long processed;
+        private long inserted;
+        private long updated;
+        private long failed;
+        private boolean errorsTruncated;
+
+        Import(Map<String, Long> productIdsByName) {
+            this.productIdsByName = productIdsByName;
+        }
+
+        void accept(long row, ProductRequestDto product) {
+            processed++;
+            Set<ConstraintViolation<ProductRequestDto>> violations = validator.validate(product);
+            if (!violations.isEmpty()) {
+                failed++;
+                addError(row, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                return;
+            }
+
+            String key = nameKey(product.name());
+            Long id = productIdsByName.get(key);
+            if (id != null) {
+                updates.put(id, new PendingRow(row, product));
+            } else {
+                inserts.put(key, new PendingRow(row, product));
+            }
+            if (inserts.size() + updates.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            processed++;
+            failed++;
+            addError(row, message);
+        }
+
+        void flush() {
+            if (inserts.isEmpty() && updates.isEmpty()) {
+                return;
+            }
+            List<ChunkRow> chunk = new ArrayList<>(inserts.size() + updates.size());
+            updates.forEach((id, pending) -> chunk.add(new ChunkRow(pending, id, true)));
+            inserts.values().forEach(pending -> chunk.add(new ChunkRow(pending, nextProductId(), false)));
+            inserts.clear();
+            updates.clear();
+
+            write(chunk, Timestamp.valueOf(LocalDateTime.now()));
+        }
+
+        // A batch rejected by a constraint is split in halves and retried, down to the rows that actually fail;
+        // any other database error fails the whole chunk
+        private void write(List<ChunkRow> chunk, Timestamp now) {
+            Written written;
+            try {
+                written = transactionTemplate.execute(status -> {
+                    List<ChunkRow> updateRows = chunk.stream().filter(ChunkRow::update).toList();
+                    List<ChunkRow> upsertRows = new ArrayList<>(chunk.stream().filter(row -> !row.update()).toList());
+                    int updatedById = 0;
+                    if (!updateRows.isEmpty()) {
+                        int[] counts = jdbcTemplate.batchUpdate(UPDATE_SQL, updateRows, updateRows.size(), (ps, row) -> {
+                            setNullableString(ps, 1, row.product().description());
+                            ps.setBigDecimal(2, row.product().price());
+                            ps.setInt(3, row.product().quantity());
+                            setNullableString(ps, 4, row.product().category());
+                            ps.setTimestamp(5, now);
+                            ps.setLong(6, row.id());
+                        })[0];
+                        for (int i = 0; i < counts.length; i++) {
+                            if (counts[i] == 0) {
+                                // Deleted since the name map was loaded: written again through the upsert
+                                upsertRows.add(new ChunkRow(updateRows.get(i).pending(), nextProductId(), false));
+                            } else {
+                                updatedById++;
+                            }
+                        }
+                    }
+                    if (upsertRows.isEmpty()) {
+                        return new Written(updatedById, List.of(), Set.of());
+                    }
+                    jdbcTemplate.batchUpdate(upsertSql, upsertRows, upsertRows.size(), (ps, row) -> {
+                        ps.setLong(1, row.id());
+                        ps.setString(2, row.product().name().trim());
+                        setNullableString(ps, 3, row.product().description());
+                        ps.setBigDecimal(4, row.product().price());
+                        ps.setInt(5, row.product().quantity());
+                        setNullableString(ps, 6, row.product().category());
+                        ps.setTimestamp(7, now);
+                        ps.setTimestamp(8, now);
+                    });
+                    return new Written(updatedById, upsertRows, insertedIds(upsertRows));
+                });
+            } catch (DataIntegrityViolationException e) {
+                if (chunk.size() == 1) {
+                    failed++;
+                    addError(chunk.get(0).row(), "Row not imported: " + e.getMostSpecificCause().getMessage());
+                    return;
+                }
+                int half = chunk.size() / 2;
+                write(chunk.subList(0, half), now);
+                write(chunk.subList(half, chunk.size()), now);
+                return;
+            } catch (DataAccessException e) {
+                long firstRow = chunk.stream().mapToLong(ChunkRow::row).min().orElseThrow();
+                long lastRow = chunk.stream().mapToLong(ChunkRow::row).max().orElseThrow();
+                failed += chunk.size();
+                addError(firstRow, "Chunk of rows " + firstRow + "-" + lastRow + " not imported: "
+                        + e.getMostSpecificCause().getMessage());
+                return;
+            }
+
+            updated += written.updatedById();
+            for (ChunkRow row : written.upserts()) {
+                if (written.insertedIds().contains(row.id())) {
+                    // Names inserted by this chunk are updates by id for the rest of the file
+                    productIdsByName.put(nameKey(row.product().name()), row.id());
+                    inserted++;
+                } else {
+                    // The name already existed (created since the map was loaded): the upsert updated it
+                    updated++;
+                }
+            }
+        }
+
+        // An upserted row was inserted if and only if the id reserved for it now exists
+        private Set<Long> insertedIds(List<ChunkRow> upsertRows) {
+            String placeholders = String.join(", ", Collections.nCopies(upsertRows.size(), "?"));
+            return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM products WHERE id IN (" + placeholders + ")",
+                    Long.class, upsertRows.stream().map(ChunkRow::id).toArray()));
+        }
+
+        // Same contract as the pooled optimizer: a sequence value v reserves the ids (v - allocationSize, v]
+        private long nextProductId() {
+            if (nextId > maxId) {
+                Long hi = jdbcTemplate.queryForObject(nextProductIdSql, Long.class);
+                maxId = hi;
+                nextId = Math.max(1, hi - Product.ID_ALLOCATION_SIZE + 1);
+            }
+            return nextId++;
+        }
+
+        private void addError(long row, String message) {
+            if (errors.size() < maxReportedErrors) {
+                errors.add(new ProductImportReportDto.RowError(row, message));
+            } else {
+                errorsTruncated = true;
+            }
+        }
+
+        ProductImportReportDto report() {
+            return new ProductImportReportDto(processed, inserted, updated, failed, List.copyOf(errors), errorsTruncated);
+        }
+    }
+
+    private static void setNullableString(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null) {
+            ps.setNull(index, Types.VARCHAR);
+        } else {
+            ps.setString(index, value);
+        }
+    }
+
+    private record PendingRow(long row, ProductRequestDto product) {}
+
+    // Outcome of a chunk transaction, applied to the report once it has committed
+    private record Written(int updatedById, List<ChunkRow> upserts, Set<Long> insertedIds) {}
+
+    // A pending row with the id it updates, or the id reserved for its insert
+    private record ChunkRow(PendingRow pending, long id, boolean update) {
+
+        long row() {
+            return pending.row();
+        }
+
+        ProductRequestDto product() {
+            return pending.product();
+        }
+    }
+}
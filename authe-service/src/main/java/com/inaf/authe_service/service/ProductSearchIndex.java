@@ -0,0 +1,449 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.dto.ProductSearchView;
+import com.inaf.authe_service.event.ProductChangedEvent;
+import com.inaf.authe_service.event.ProductDeletedEvent;
+import com.inaf.authe_service.repository.ProductRepository;
+import com.inaf.authe_service.util.SearchNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory product search index.
+ * <ul>
+ *     <li>Names: trigram inverted index for substring search, plus a sorted word map for prefix autocomplete.</li>
+ *     <li>Descriptions: word inverted index, every query word matching a description word by prefix.</li>
+ * </ul>
+ * Postings are sorted {@code long[]} arrays replaced copy-on-write, so searches never lock.
+ * Writes (product events, rebuilds) are rare and serialised on the index.
+ * Until the first build completes, {@link #isReady()} is false and callers fall back to the database.
+ * Product events are local to the instance: changes committed elsewhere (other instances, direct SQL)
+ * are picked up by a periodic rebuild. Documents keep the product version, so an event that arrives
+ * after a newer one, or after a rebuild that already read a newer row, is discarded.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    private static final int TRIGRAM = 3;
+    private static final long[] EMPTY = new long[0];
+
+    // Rank of a match, best first
+    private static final int NAME_EQUALS = 0;
+    private static final int NAME_PREFIX = 1;
+    private static final int NAME_WORD_PREFIX = 2;
+    private static final int NAME_CONTAINS = 3;
+    private static final int DESCRIPTION = 4;
+
+    private final ProductRepository productRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private volatile Snapshot snapshot = new Snapshot();
+    private volatile boolean ready;
+
+    // Events received while a rebuild is running, replayed on the new snapshot
+    private List<Object> pendingEvents;
+
+    public ProductSearchIndex(ProductRepository productRepository, PlatformTransactionManager transactionManager) {
+        this.productRepository = productRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    public void rebuild() {
+        synchronized (this) {
+            if (pendingEvents != null) {
+                return;
+            }
+            pendingEvents = new ArrayList<>();
+        }
+
+        Snapshot rebuilt = new Snapshot();
+        try {
+            SnapshotBuilder builder = new SnapshotBuilder(rebuilt);
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<ProductSearchView> products = productRepository.streamAllSearchViews()) {
+                    products.forEach(product -> builder.add(product.getId(), product.getName(),
+                            product.getDescription(), product.getVersion()));
+                }
+            });
+            builder.freeze();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                pendingEvents = null;
+            }
+            log.error("Product search index build failed, searches keep using the database", e);
+            return;
+        }
+
+        synchronized (this) {
+            for (Object event : pendingEvents) {
+                apply(rebuilt, event);
+            }
+            pendingEvents = null;
+            snapshot = rebuilt;
+            ready = true;
+        }
+        log.info("Product search index built with {} products", rebuilt.documents.size());
+    }
+
+    @Scheduled(initialDelayString = "${products.search-index.resync-interval:300000}",
+            fixedDelayString = "${products.search-index.resync-interval:300000}")
+    public void resync() {
+        rebuild();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        record(event);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public synchronized void onProductDeleted(ProductDeletedEvent event) {
+        record(event);
+    }
+
+    private void record(Object event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        }
+        apply(snapshot, event);
+    }
+
+    private void apply(Snapshot target, Object event) {
+        if (event instanceof ProductChangedEvent changed) {
+            long version = versionOf(changed.version());
+            Document current = target.documents.get(changed.id());
+            if (current != null && current.version() > version) {
+                return;
+            }
+            remove(target, changed.id());
+            add(target, new Document(changed.id(), changed.name(), SearchNormalizer.normalize(changed.name()),
+                    SearchNormalizer.normalize(changed.description()), version));
+        } else if (event instanceof ProductDeletedEvent deleted) {
+            remove(target, deleted.id());
+        }
+    }
+
+    /**
+     * Products whose name contains the term, ranked. Terms shorter than a trigram match name words by prefix.
+     */
+    public List<Long> searchNames(String term) {
+        return search(term, false);
+    }
+
+    /**
+     * Products whose name contains the term, or whose description contains every word of the term
+     * (each as a word prefix). Name matches rank first.
+     */
+    public List<Long> search(String term) {
+        return search(term, true);
+    }
+
+    // Distinct product names with a word starting with the prefix, names starting with it first
+    public List<String> autocomplete(String prefix, int limit) {
+        String query = SearchNormalizer.normalize(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        List<String> words = SearchNormalizer.tokens(query);
+        String lastWord = words.get(words.size() - 1);
+
+        // The word map is sorted: the candidates are a contiguous range, scanned until enough are found
+        Set<Long> candidates = new LinkedHashSet<>();
+        for (long[] postings : wordsWithPrefix(current.nameWords, lastWord).values()) {
+            for (long id : postings) {
+                candidates.add(id);
+            }
+            if (candidates.size() >= limit * 20) {
+                break;
+            }
+        }
+
+        return candidates.stream()
+                .map(current.documents::get)
+                .filter(document -> document != null && document.normalizedName().contains(query))
+                .sorted(Comparator.comparingInt((Document document) -> document.normalizedName().startsWith(query) ? 0 : 1)
+                        .thenComparingInt(document -> document.name().length())
+                        .thenComparing(Document::name))
+                .map(Document::name)
+                .distinct()
+                .limit(limit)
+                .toList();
+    }
+
+    private List<Long> search(String term, boolean includeDescriptions) {
+        String query = SearchNormalizer.normalize(term);
+        if (query.isEmpty()) {
+            return List.of();
+        }
+        Snapshot current = snapshot;
+        Map<Long, Integer> ranks = new HashMap<>();
+
+        for (long id : nameCandidates(current, query)) {
+            Document document = current.documents.get(id);
+            if (document != null) {
+                int rank = nameRank(document.normalizedName(), query);
+                if (rank >= 0) {
+                    ranks.put(id, rank);
+                }
+            }
+        }
+
+        if (includeDescriptions) {
+            for (long id : descriptionMatches(current, query)) {
+                ranks.putIfAbsent(id, DESCRIPTION);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(ranks.keySet());
+        ids.sort(Comparator.comparingInt((Long id) -> ranks.get(id))
+                .thenComparingInt(id -> nameLength(current, id))
+                .thenComparing(Comparator.naturalOrder()));
+        return ids;
+    }
+
+    private long[] nameCandidates(Snapshot current, String query) {
+        if (query.length() < TRIGRAM) {
+            return union(wordsWithPrefix(current.nameWords, query).values());
+        }
+        List<long[]> postings = new ArrayList<>();
+        for (String trigram : trigrams(query)) {
+            long[] ids = current.nameTrigrams.get(trigram);
+            if (ids == null) {
+                return EMPTY;
+            }
+            postings.add(ids);
+        }
+        return intersect(postings);
+    }
+
+    private long[] descriptionMatches(Snapshot current, String query) {
+        List<long[]> postings = new ArrayList<>();
+        for (String word : SearchNormalizer.tokens(query)) {
+            long[] ids = union(wordsWithPrefix(current.descriptionWords, word).values());
+            if (ids.length == 0) {
+                return EMPTY;
+            }
+            postings.add(ids);
+        }
+        return intersect(postings);
+    }
+
+    // -1 when the name does not contain the query (trigram candidates are a superset)
+    private int nameRank(String name, String query) {
+        if (name.equals(query)) {
+            return NAME_EQUALS;
+        }
+        if (name.startsWith(query)) {
+            return NAME_PREFIX;
+        }
+        if (name.contains(" " + query)) {
+            return NAME_WORD_PREFIX;
+        }
+        return name.contains(query) ? NAME_CONTAINS : -1;
+    }
+
+    private int nameLength(Snapshot current, long id) {
+        Document document = current.documents.get(id);
+        return document == null ? Integer.MAX_VALUE : document.normalizedName().length();
+    }
+
+    private static ConcurrentNavigableMap<String, long[]> wordsWithPrefix(ConcurrentSkipListMap<String, long[]> words,
+                                                                         String prefix) {
+        return words.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+    }
+
+    private void add(Snapshot target, Document document) {
+        target.documents.put(document.id(), document);
+        for (String trigram : trigrams(document.normalizedName())) {
+            target.nameTrigrams.compute(trigram, (key, ids) -> insert(ids, document.id()));
+        }
+        for (String word : SearchNormalizer.tokens(document.normalizedName())) {
+            target.nameWords.compute(word, (key, ids) -> insert(ids, document.id()));
+        }
+        for (String word : SearchNormalizer.tokens(document.normalizedDescription())) {
+            target.descriptionWords.compute(word, (key, ids) -> insert(ids, document.id()));
+        }
+    }
+
+    private void remove(Snapshot target, Long id) {
+        Document document = target.documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String trigram : trigrams(document.normalizedName())) {
+            target.nameTrigrams.computeIfPresent(trigram, (key, ids) -> delete(ids, id));
+        }
+        for (String word : SearchNormalizer.tokens(document.normalizedName())) {
+            target.nameWords.computeIfPresent(word, (key, ids) -> delete(ids, id));
+        }
+        for (String word : SearchNormalizer.tokens(document.normalizedDescription())) {
+            target.descriptionWords.computeIfPresent(word, (key, ids) -> delete(ids, id));
+        }
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + TRIGRAM <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + TRIGRAM));
+        }
+        return trigrams;
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        if (ids == null) {
+            return new long[]{id};
+        }
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return ids;
+        }
+        int insertion = -position - 1;
+        long[] copy = new long[ids.length + 1];
+        System.arraycopy(ids, 0, copy, 0, insertion);
+        copy[insertion] = id;
+        System.arraycopy(ids, insertion, copy, insertion + 1, ids.length - insertion);
+        return copy;
+    }
+
+    // Returning null removes the entry from the map
+    private static long[] delete(long[] ids, long id) {
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return ids;
+        }
+        if (ids.length == 1) {
+            return null;
+        }
+        long[] copy = new long[ids.length - 1];
+        System.arraycopy(ids, 0, copy, 0, position);
+        System.arraycopy(ids, position + 1, copy, position, ids.length - position - 1);
+        return copy;
+    }
+
+    // Intersection of sorted postings, smallest first, probing the others by binary search
+    private static long[] intersect(List<long[]> postings) {
+        if (postings.isEmpty()) {
+            return EMPTY;
+        }
+        postings.sort(Comparator.comparingInt(ids -> ids.length));
+        long[] result = postings.get(0);
+        for (int i = 1; i < postings.size() && result.length > 0; i++) {
+            long[] other = postings.get(i);
+            long[] kept = new long[result.length];
+            int count = 0;
+            for (long id : result) {
+                if (Arrays.binarySearch(other, id) >= 0) {
+                    kept[count++] = id;
+                }
+            }
+            result = Arrays.copyOf(kept, count);
+        }
+        return result;
+    }
+
+    private static long[] union(Iterable<long[]> postings) {
+        long[] result = EMPTY;
+        int size = 0;
+        for (long[] ids : postings) {
+            if (size + ids.length > result.length) {
+                result = Arrays.copyOf(result, Math.max(result.length * 2, size + ids.length));
+            }
+            System.arraycopy(ids, 0, result, size, ids.length);
+            size += ids.length;
+        }
+        return Arrays.stream(result, 0, size).sorted().distinct().toArray();
+    }
+
+    private static long versionOf(Long version) {
+        return version != null ? version : 0L;
+    }
+
+    private record Document(Long id, String name, String normalizedName, String normalizedDescription, long version) {}
+
+    private static final class Snapshot {
+        private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+        private final Map<String, long[]> nameTrigrams = new ConcurrentHashMap<>();
+        private final ConcurrentSkipListMap<String, long[]> nameWords = new ConcurrentSkipListMap<>();
+        private final ConcurrentSkipListMap<String, long[]> descriptionWords = new ConcurrentSkipListMap<>();
+    }
+
+    // Bulk load: postings are accumulated in growable arrays, then sorted and published once
+    private static final class SnapshotBuilder {
+
+        private final Snapshot target;
+        private final Map<String, LongList> nameTrigrams = new HashMap<>();
+        private final Map<String, LongList> nameWords = new HashMap<>();
+        private final Map<String, LongList> descriptionWords = new HashMap<>();
+
+        private SnapshotBuilder(Snapshot target) {
+            this.target = target;
+        }
+
+        private void add(Long id, String name, String description, Long version) {
+            String normalizedName = SearchNormalizer.normalize(name);
+            String normalizedDescription = SearchNormalizer.normalize(description);
+            target.documents.put(id, new Document(id, name, normalizedName, normalizedDescription, versionOf(version)));
+            trigrams(normalizedName).forEach(trigram -> nameTrigrams.computeIfAbsent(trigram, key -> new LongList()).add(id));
+            SearchNormalizer.tokens(normalizedName).forEach(word -> nameWords.computeIfAbsent(word, key -> new LongList()).add(id));
+            SearchNormalizer.tokens(normalizedDescription).forEach(word -> descriptionWords.computeIfAbsent(word, key -> new LongList()).add(id));
+        }
+
+        private void freeze() {
+            nameTrigrams.forEach((key, ids) -> target.nameTrigrams.put(key, ids.toSortedArray()));
+            nameWords.forEach((key, ids) -> target.nameWords.put(key, ids.toSortedArray()));
+            descriptionWords.forEach((key, ids) -> target.descriptionWords.put(key, ids.toSortedArray()));
+        }
+    }
+
+    private static final class LongList {
+        private long[] values = new long[4];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
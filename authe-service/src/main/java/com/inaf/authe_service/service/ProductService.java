@@ -1,10 +1,16 @@
 package com.inaf.authe_service.service;
 
+import com.inaf.authe_service.dto.CursorPageDto;
+import com.inaf.authe_service.dto.ProductImportReportDto;
 import com.inaf.authe_service.dto.ProductRequestDto;
 import com.inaf.authe_service.dto.ProductResponseDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface ProductService {
@@ -14,8 +20,14 @@ public interface ProductService {
     ProductResponseDto getProductById(Long id);
 
     Page<ProductResponseDto> getAllProducts(Pageable pageable);
+
+    CursorPageDto<ProductResponseDto> getProductsByCursor(String cursor, int size, boolean includeTotal);
     List<ProductResponseDto> getAll();
 
+    void exportAll(OutputStream outputStream);
+
+    ProductImportReportDto importProducts(InputStream inputStream, ProductBulkImporter.Format format);
+
 
     ProductResponseDto updateProduct(Long id, ProductRequestDto requestDto);
 
@@ -27,7 +39,11 @@ public interface ProductService {
 
     Page<ProductResponseDto> searchProductsPaginated(String searchTerm, Pageable pageable);
 
+    List<String> autocomplete(String prefix, int limit);
+
     List<ProductResponseDto> getLowStockProducts(Integer threshold);
 
+    SseEmitter subscribeToLowStock(Integer threshold);
+
     void updateStock(Long id, Integer newQuantity);
 }
@@ -0,0 +1,179 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.entity.DailyRevenue;
+import com.inaf.authe_service.entity.Sale;
+import com.inaf.authe_service.repository.DailyRevenueRepository;
+import com.inaf.authe_service.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Cumuls journaliers du chiffre d'affaires (ventes CONFIRMED), tenus à jour dans la transaction
+ * qui fait entrer ou sortir une vente du statut CONFIRMED.
+ */
+@Service
+@Transactional
+public class RevenueRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    private static final String ROLLUP_TABLE = "daily_revenue";
+
+    // SQL standard, sans ON CONFLICT : accepté par PostgreSQL et par H2 quel que soit son mode de compatibilité
+    private static final String INSERT_ROLLUP_SQL = "INSERT INTO " + ROLLUP_TABLE +
+            " (revenue_day, payment_method, stripe, revenue, sale_count) VALUES (?, ?, ?, ?, ?)";
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    // Nombre de bandes par (jour, mode de paiement)
+    private static final int STRIPES = 8;
+
+    private final DailyRevenueRepository dailyRevenueRepository;
+    private final SaleRepository saleRepository;
+    private final ClusterLock clusterLock;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+
+    public RevenueRollupService(DailyRevenueRepository dailyRevenueRepository, SaleRepository saleRepository,
+                                ClusterLock clusterLock, PlatformTransactionManager transactionManager,
+                                JdbcTemplate jdbcTemplate) {
+        this.dailyRevenueRepository = dailyRevenueRepository;
+        this.saleRepository = saleRepository;
+        this.clusterLock = clusterLock;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // À appeler quand le statut d'une vente passe de oldStatus à newStatus
+    public void onStatusChange(Sale sale, SaleStatus oldStatus, SaleStatus newStatus) {
+        boolean wasCounted = oldStatus == SaleStatus.CONFIRMED;
+        boolean isCounted = newStatus == SaleStatus.CONFIRMED;
+        if (wasCounted == isCounted) {
+            return;
+        }
+        BigDecimal amount = isCounted ? sale.getTotalAmount() : sale.getTotalAmount().negate();
+        add(sale.getSaleDate().toLocalDate(), paymentMethodOf(sale), amount, isCounted ? 1 : -1);
+    }
+
+    private void add(LocalDate day, String paymentMethod, BigDecimal amount, long count) {
+        int stripe = ThreadLocalRandom.current().nextInt(STRIPES);
+        if (dailyRevenueRepository.addToRollup(day, paymentMethod, stripe, amount, count) > 0) {
+            return;
+        }
+        if (insertRollup(day, paymentMethod, stripe, amount, count)) {
+            return;
+        }
+        // Ligne créée entre-temps par une autre transaction
+        dailyRevenueRepository.addToRollup(day, paymentMethod, stripe, amount, count);
+    }
+
+    // Première vente de la bande. L'insertion passe par un point de sauvegarde JDBC, sur la connexion de la
+    // transaction en cours : sous PostgreSQL, une violation de clé annulerait sinon toute la transaction de la vente.
+    // Retourne false si une transaction concurrente a créé la ligne avant nous.
+    private boolean insertRollup(LocalDate day, String paymentMethod, int stripe, BigDecimal amount, long count) {
+        return Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection -> {
+            Savepoint savepoint = connection.setSavepoint();
+            try (PreparedStatement ps = connection.prepareStatement(INSERT_ROLLUP_SQL)) {
+                ps.setObject(1, day);
+                ps.setString(2, paymentMethod);
+                ps.setInt(3, stripe);
+                ps.setBigDecimal(4, amount);
+                ps.setLong(5, count);
+                ps.executeUpdate();
+            } catch (SQLException e) {
+                if (!UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    throw e;
+                }
+                connection.rollback(savepoint);
+                return false;
+            }
+            connection.releaseSavepoint(savepoint);
+            return true;
+        }));
+    }
+
+    // Reconstruit tous les cumuls à partir des ventes ; retourne le nombre de lignes créées.
+    // La table est verrouillée jusqu'au commit : une autre reconstruction ou un changement de statut concurrent
+    // attend, sinon une vente confirmée entre la suppression et la relecture serait comptée deux fois.
+    public int rebuild() {
+        clusterLock.lockTableForTransaction(ROLLUP_TABLE);
+        dailyRevenueRepository.deleteAllRollups();
+        return dailyRevenueRepository.insertRollupsFromSales();
+    }
+
+    // Toutes les instances passent ici au démarrage : la première reconstruit, les suivantes trouvent les cumuls
+    // une fois le verrou libéré. Un échec n'empêche pas le démarrage (reconstruction possible via l'API admin).
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void rebuildIfEmpty() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (dailyRevenueRepository.count() > 0 || saleRepository.countByStatus(SaleStatus.CONFIRMED) == 0) {
+                    return;
+                }
+                clusterLock.lockTableForTransaction(ROLLUP_TABLE);
+                if (dailyRevenueRepository.count() == 0) {
+                    dailyRevenueRepository.insertRollupsFromSales();
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Revenue rollup rebuild failed at startup, revenue queries may be incomplete until it is rebuilt", e);
+        }
+    }
+
+    /**
+     * CA des ventes confirmées entre start et end inclus : les jours entièrement couverts sont lus dans les cumuls,
+     * seuls les jours partiels aux bornes sont calculés sur la table des ventes.
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getTotalRevenue(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate.isAfter(endDate)) {
+            return BigDecimal.ZERO;
+        }
+
+        LocalDate firstFullDay = startDate.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? startDate.toLocalDate() : startDate.toLocalDate().plusDays(1);
+        LocalDate lastFullDay = endDate.toLocalTime().equals(LocalTime.MAX)
+                ? endDate.toLocalDate() : endDate.toLocalDate().minusDays(1);
+
+        if (firstFullDay.isAfter(lastFullDay)) {
+            return orZero(saleRepository.getTotalRevenueByPeriod(startDate, endDate));
+        }
+
+        BigDecimal total = orZero(dailyRevenueRepository.sumRevenueBetweenDays(firstFullDay, lastFullDay));
+        if (startDate.isBefore(firstFullDay.atStartOfDay())) {
+            total = total.add(orZero(saleRepository.sumConfirmedRevenueFromUntil(startDate, firstFullDay.atStartOfDay())));
+        }
+        LocalDateTime afterLastFullDay = lastFullDay.plusDays(1).atStartOfDay();
+        if (!endDate.isBefore(afterLastFullDay)) {
+            total = total.add(orZero(saleRepository.getTotalRevenueByPeriod(afterLastFullDay, endDate)));
+        }
+        return total;
+    }
+
+    private String paymentMethodOf(Sale sale) {
+        return sale.getPaymentMethod() != null ? sale.getPaymentMethod().name() : DailyRevenue.UNSPECIFIED_PAYMENT_METHOD;
+    }
+
+    private BigDecimal orZero(BigDecimal value) {
+        return value != null ? value : BigDecimal.ZERO;
+    }
+}
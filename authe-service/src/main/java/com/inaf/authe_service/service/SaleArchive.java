@@ -0,0 +1,138 @@
+package com.inaf.authe_service.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inaf.authe_service.dto.SaleResponseDto;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stockage froid des ventes archivées : une ligne par vente, la vente complète (articles compris)
+ * sérialisée en JSON compressé gzip.
+ * Sous PostgreSQL la table est partitionnée par mois de vente ; les partitions sont créées à l'archivage.
+ * Les lectures par période ne touchent l'archive que si la période commence avant la vente archivée la plus récente,
+ * lue en base (index sur sale_date) pour tenir compte des archivages faits par les autres instances.
+ */
+@Component
+public class SaleArchive {
+
+    private static final String INSERT_SQL = "INSERT INTO sales_archive " +
+            "(sale_id, sale_number, sale_date, status, payload, archived_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Set<YearMonth> partitions = ConcurrentHashMap.newKeySet();
+    private volatile boolean partitioned;
+
+    public SaleArchive(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        partitioned = "PostgreSQL".equals(jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName()));
+    }
+
+    // Appelé dans la transaction qui supprime les ventes de la table principale
+    public void store(List<SaleResponseDto> sales) {
+        if (sales.isEmpty()) {
+            return;
+        }
+        if (partitioned) {
+            sales.stream().map(sale -> YearMonth.from(sale.saleDate())).distinct().forEach(this::ensurePartition);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, sales, sales.size(), (ps, sale) -> {
+            ps.setLong(1, sale.id());
+            ps.setString(2, sale.saleNumber());
+            ps.setTimestamp(3, Timestamp.valueOf(sale.saleDate()));
+            ps.setString(4, sale.status());
+            ps.setBytes(5, compress(sale));
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    public Optional<SaleResponseDto> findById(Long id) {
+        return jdbcTemplate.query("SELECT payload FROM sales_archive WHERE sale_id = ?",
+                (rs, rowNum) -> decompress(rs.getBytes(1)), id).stream().findFirst();
+    }
+
+    public Optional<SaleResponseDto> findBySaleNumber(String saleNumber) {
+        return jdbcTemplate.query("SELECT payload FROM sales_archive WHERE sale_number = ?",
+                (rs, rowNum) -> decompress(rs.getBytes(1)), saleNumber).stream().findFirst();
+    }
+
+    // Le filtre sur sale_date limite la lecture aux partitions des mois demandés
+    public List<SaleResponseDto> findBySaleDateBetween(LocalDateTime startDate, LocalDateTime endDate) {
+        Timestamp latest = jdbcTemplate.queryForObject("SELECT MAX(sale_date) FROM sales_archive", Timestamp.class);
+        if (latest == null || startDate.isAfter(latest.toLocalDateTime())) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT payload FROM sales_archive WHERE sale_date BETWEEN ? AND ? ORDER BY sale_date",
+                (rs, rowNum) -> decompress(rs.getBytes(1)),
+                Timestamp.valueOf(startDate), Timestamp.valueOf(endDate));
+    }
+
+    private void ensurePartition(YearMonth month) {
+        if (partitions.contains(month)) {
+            return;
+        }
+        jdbcTemplate.execute(String.format(
+                "CREATE TABLE IF NOT EXISTS sales_archive_%d_%02d PARTITION OF sales_archive " +
+                        "FOR VALUES FROM ('%s') TO ('%s')",
+                month.getYear(), month.getMonthValue(), month.atDay(1), month.plusMonths(1).atDay(1)));
+        // La création est annulée avec la transaction : la partition n'est mémorisée qu'au commit
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    partitions.add(month);
+                }
+            });
+        } else {
+            partitions.add(month);
+        }
+    }
+
+    private byte[] compress(SaleResponseDto sale) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, sale);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Archivage de la vente impossible: " + sale.id(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private SaleResponseDto decompress(byte[] payload) {
+        try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, SaleResponseDto.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Lecture de la vente archivée impossible", e);
+        }
+    }
+}
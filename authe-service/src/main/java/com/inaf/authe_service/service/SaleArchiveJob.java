@@ -0,0 +1,54 @@
+package com.inaf.authe_service.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Déplace chaque nuit vers l'archive les ventes terminées plus anciennes que la durée de rétention,
+ * par lots, chacun dans sa propre transaction, pour que la table des ventes ne garde que les données récentes.
+ * Une seule instance archive à la fois : les autres passent leur tour (verrou {@link ClusterLock}).
+ */
+@Component
+public class SaleArchiveJob {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleArchiveJob.class);
+
+    private final SaleService saleService;
+    private final ClusterLock clusterLock;
+
+    @Value("${sales.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${sales.archive.retention-days:365}")
+    private int retentionDays;
+
+    @Value("${sales.archive.batch-size:200}")
+    private int batchSize;
+
+    public SaleArchiveJob(SaleService saleService, ClusterLock clusterLock) {
+        this.saleService = saleService;
+        this.clusterLock = clusterLock;
+    }
+
+    @Scheduled(cron = "${sales.archive.cron:0 30 3 * * *}")
+    public void archiveOldSales() {
+        if (enabled && !clusterLock.tryRun("sale-archive", () -> archive(LocalDateTime.now().minusDays(retentionDays)))) {
+            log.info("Sale archiving skipped: already running on another instance");
+        }
+    }
+
+    public long archive(LocalDateTime cutoff) {
+        long archived = 0;
+        int count;
+        do {
+            count = saleService.archiveSalesBefore(cutoff, batchSize);
+            archived += count;
+        } while (count == batchSize);
+        return archived;
+    }
+}
@@ -0,0 +1,92 @@
+package com.inaf.authe_service.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Génère des numéros de vente uniques et croissants sans accès à la base :
+ * SALE-{yyyyMMddHHmmss UTC}-{nœud}-{séquence dans la seconde}.
+ * L'état (seconde, séquence) tient dans un seul AtomicLong mis à jour par CAS.
+ * Au démarrage l'état part de l'horloge plus une marge : les secondes empruntées par une rafale
+ * avant un redémarrage (ou un léger recul de l'horloge) ne produisent pas de numéros déjà attribués.
+ */
+@Component
+public class SaleNumberGenerator {
+
+    private static final int SEQUENCE_BITS = 16;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    private final AtomicLong state;
+    private final String nodeId;
+    // Horloge en millisecondes (remplaçable dans les tests)
+    private final LongSupplier clock;
+
+    // Préfixe formaté de la dernière seconde utilisée, pour éviter de reformater à chaque appel
+    private volatile CachedPrefix cachedPrefix = new CachedPrefix(-1, "");
+
+    @Autowired
+    public SaleNumberGenerator(@Value("${sales.number.node-id:0}") int nodeId,
+                               @Value("${sales.number.startup-margin-seconds:5}") long startupMarginSeconds) {
+        this(nodeId, startupMarginSeconds, System::currentTimeMillis);
+    }
+
+    SaleNumberGenerator(int nodeId, long startupMarginSeconds, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > 99) {
+            throw new IllegalArgumentException("sales.number.node-id doit être compris entre 0 et 99");
+        }
+        if (startupMarginSeconds < 0) {
+            throw new IllegalArgumentException("sales.number.startup-margin-seconds doit être positif");
+        }
+        this.nodeId = String.format("%02d", nodeId);
+        this.clock = clock;
+        this.state = new AtomicLong((clock.getAsLong() / 1000 + startupMarginSeconds) << SEQUENCE_BITS);
+    }
+
+    public String nextSaleNumber() {
+        long next = nextState();
+        long epochSecond = next >>> SEQUENCE_BITS;
+        long sequence = next & SEQUENCE_MASK;
+
+        StringBuilder sb = new StringBuilder(32)
+                .append(prefixFor(epochSecond))
+                .append('-');
+        String seq = Long.toString(sequence);
+        for (int i = seq.length(); i < 5; i++) {
+            sb.append('0');
+        }
+        return sb.append(seq).toString();
+    }
+
+    // Si la séquence d'une seconde est épuisée, on emprunte la seconde suivante : l'ordre reste strictement croissant
+    private long nextState() {
+        while (true) {
+            long current = state.get();
+            long now = clock.getAsLong() / 1000;
+            long candidate = (current >>> SEQUENCE_BITS) < now ? now << SEQUENCE_BITS : current + 1;
+            if (state.compareAndSet(current, candidate)) {
+                return candidate;
+            }
+        }
+    }
+
+    private String prefixFor(long epochSecond) {
+        CachedPrefix cached = cachedPrefix;
+        if (cached.epochSecond() == epochSecond) {
+            return cached.prefix();
+        }
+        String prefix = "SALE-" + LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC).format(TIMESTAMP_FORMAT)
+                + "-" + nodeId;
+        cachedPrefix = new CachedPrefix(epochSecond, prefix);
+        return prefix;
+    }
+
+    private record CachedPrefix(long epochSecond, String prefix) {}
+}
@@ -1,14 +1,17 @@
 package com.inaf.authe_service.service;
 
 import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.dto.CursorPageDto;
 import com.inaf.authe_service.dto.SaleRequestDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 public interface SaleService {
 
@@ -19,8 +22,12 @@ public interface SaleService {
     SaleResponseDto getSaleByNumber(String saleNumber);
 
     Page<SaleResponseDto> getAllSales(Pageable pageable);
+
+    CursorPageDto<SaleResponseDto> getSalesByCursor(String cursor, int size, boolean includeTotal);
     List<SaleResponseDto> getAll();
 
+    void exportAll(OutputStream outputStream);
+
     SaleResponseDto updateSale(Long id, SaleRequestDto requestDto);
 
     void deleteSale(Long id);
@@ -41,5 +48,11 @@ public interface SaleService {
 
     BigDecimal getTotalRevenueByPeriod(LocalDateTime startDate, LocalDateTime endDate);
 
+    int rebuildRevenueRollups();
+
+    int archiveSalesBefore(LocalDateTime cutoff, int batchSize);
+
     Long getSalesCountByStatus(SaleStatus status);
+
+    Map<SaleStatus, Long> getSalesCountsByStatus();
 }
@@ -0,0 +1,188 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.repository.SaleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Nombre de ventes par statut, tenu en mémoire.
+ * Chaque transition est appliquée après le commit de la transaction qui l'a faite ; un recalage périodique
+ * sur la base corrige les écarts (écritures d'autres instances, transitions faites hors du service).
+ * Une transaction garde le verrou de lecture de {@code commitLock} du début de son commit jusqu'à l'application
+ * de ses transitions : le recalage, qui prend le verrou d'écriture, voit les compteurs et la base dans le même état.
+ */
+@Component
+public class SaleStatusCounters {
+
+    private static final Logger log = LoggerFactory.getLogger(SaleStatusCounters.class);
+
+    private final SaleRepository saleRepository;
+    private final TransactionTemplate snapshotTransaction;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<SaleStatus, LongAdder> counters = new EnumMap<>(SaleStatus.class);
+    private final ReentrantReadWriteLock commitLock = new ReentrantReadWriteLock();
+    private volatile boolean ready;
+
+    @Value("${sales.status-counters.commit-wait:1000}")
+    private long commitWait;
+
+    public SaleStatusCounters(SaleRepository saleRepository, PlatformTransactionManager transactionManager,
+                              JdbcTemplate jdbcTemplate) {
+        this.saleRepository = saleRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        // Même instantané pour toutes les lectures de la transaction (pris à la première lecture de la table).
+        // Pas en lecture seule : le routage l'enverrait vers un réplica, en retard sur les commits observés ici
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        for (SaleStatus status : SaleStatus.values()) {
+            counters.put(status, new LongAdder());
+        }
+    }
+
+    // from est null pour une création, to est null pour une suppression
+    public void onTransition(SaleStatus from, SaleStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // Faux si la transaction a été annulée avant son commit
+                private boolean locked;
+
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    commitLock.readLock().lock();
+                    locked = true;
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            apply(from, to);
+                        }
+                    } finally {
+                        if (locked) {
+                            commitLock.readLock().unlock();
+                        }
+                    }
+                }
+            });
+        } else {
+            commitLock.readLock().lock();
+            try {
+                apply(from, to);
+            } finally {
+                commitLock.readLock().unlock();
+            }
+        }
+    }
+
+    private void apply(SaleStatus from, SaleStatus to) {
+        if (from != null) {
+            counters.get(from).decrement();
+        }
+        if (to != null) {
+            counters.get(to).increment();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long count(SaleStatus status) {
+        return counters.get(status).sum();
+    }
+
+    public Map<SaleStatus, Long> counts() {
+        Map<SaleStatus, Long> counts = new EnumMap<>(SaleStatus.class);
+        counters.forEach((status, counter) -> counts.put(status, counter.sum()));
+        return counts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reconcile();
+        ready = true;
+    }
+
+    /**
+     * Recale les compteurs sur un GROUP BY : valeur = compte en base + variation mémoire depuis l'instantané.
+     * L'instantané de la requête et la copie {@code before} des compteurs sont pris sous le verrou d'écriture,
+     * quand aucun commit n'est en cours : une transition est soit dans l'instantané et dans {@code before},
+     * soit dans aucun des deux et comptée par la variation. Le verrou n'est tenu que le temps d'une lecture
+     * par clé primaire, pas pendant le GROUP BY.
+     */
+    @Scheduled(initialDelayString = "${sales.status-counters.reconcile-interval:60000}",
+            fixedDelayString = "${sales.status-counters.reconcile-interval:60000}")
+    public void reconcile() {
+        snapshotTransaction.executeWithoutResult(status -> {
+            acquirePhysicalConnection();
+            Map<SaleStatus, Long> before;
+            try {
+                if (!commitLock.writeLock().tryLock(commitWait, TimeUnit.MILLISECONDS)) {
+                    log.warn("Sale status counters not reconciled: commits still in progress after {} ms", commitWait);
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                // Première lecture de la table : fixe l'instantané de la transaction
+                saleRepository.existsById(0L);
+                before = counts();
+            } finally {
+                commitLock.writeLock().unlock();
+            }
+
+            Map<SaleStatus, Long> persisted = new EnumMap<>(SaleStatus.class);
+            List<Object[]> rows = saleRepository.countGroupByStatus();
+            for (Object[] row : rows) {
+                persisted.put((SaleStatus) row[0], (Long) row[1]);
+            }
+
+            counters.forEach((saleStatus, counter) -> {
+                long sinceSnapshot = counter.sum() - before.get(saleStatus);
+                long target = persisted.getOrDefault(saleStatus, 0L) + sinceSnapshot;
+                counter.add(target - counter.sum());
+            });
+        });
+    }
+
+    // La connexion est prise avant le verrou d'écriture : les commits qu'il bloque gardent la leur,
+    // et le pool pourrait être vide pendant qu'on le détient. Le proxy paresseux ne l'obtient sinon qu'à la
+    // première requête ; ni l'ouverture de la transaction ni ce déballage n'exécutent d'instruction SQL.
+    private void acquirePhysicalConnection() {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            Connection target = connection;
+            while (target instanceof ConnectionProxy proxy) {
+                target = proxy.getTargetConnection();
+            }
+            return null;
+        });
+    }
+}
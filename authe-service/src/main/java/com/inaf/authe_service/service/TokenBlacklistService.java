@@ -0,0 +1,153 @@
+package com.inaf.authe_service.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.Date;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Liste des tokens révoqués (par jti) jusqu'à leur expiration.
+ * Un filtre de Bloom répond sans verrou au cas courant « non révoqué » ; les jti sont rangés
+ * dans des ensembles concurrents regroupés par tranche d'expiration, supprimées en bloc par le nettoyage.
+ */
+@Service
+public class TokenBlacklistService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    @Value("${security.jwt.blacklist.enabled:true}")
+    private boolean enabled;
+
+    @Value("${security.jwt.blacklist.cleanup-interval:3600000}")
+    private long bucketWidth;
+
+    @Value("${security.jwt.blacklist.expected-entries:100000}")
+    private int expectedEntries;
+
+    private final Map<Long, Set<String>> bucketsByExpiry = new ConcurrentHashMap<>();
+    private volatile BloomFilter bloomFilter;
+
+    @PostConstruct
+    void init() {
+        bloomFilter = new BloomFilter(expectedEntries, FALSE_POSITIVE_RATE);
+    }
+
+    // Révocation d'un token d'accès à la déconnexion ; sans effet si la liste est désactivée
+    public void revoke(String tokenId, Date expiration) {
+        if (enabled && tokenId != null && expiration != null && expiration.getTime() > System.currentTimeMillis()) {
+            add(tokenId, expiration);
+        }
+    }
+
+    // Rotation : un refresh token n'est accepté qu'une fois, même si la liste est désactivée.
+    // Retourne false s'il était déjà consommé ou révoqué, ou s'il n'a pas de jti (il ne pourrait pas être tracé).
+    public boolean consume(String tokenId, Date expiration) {
+        if (tokenId == null || expiration == null || expiration.getTime() <= System.currentTimeMillis()) {
+            return false;
+        }
+        return add(tokenId, expiration);
+    }
+
+    // Chaque refresh ajoute une entrée : seul l'ajout au filtre est sous verrou (le filtre peut être
+    // reconstruit en même temps par le nettoyage), l'ensemble de la tranche reste concurrent
+    private boolean add(String tokenId, Date expiration) {
+        boolean added = bucketsByExpiry.computeIfAbsent(bucketOf(expiration.getTime()), k -> ConcurrentHashMap.newKeySet())
+                .add(tokenId);
+        if (added) {
+            synchronized (this) {
+                bloomFilter.put(tokenId);
+            }
+        }
+        return added;
+    }
+
+    public boolean isRevoked(String tokenId, Date expiration) {
+        if (!enabled || tokenId == null || expiration == null) {
+            return false;
+        }
+        if (!bloomFilter.mightContain(tokenId)) {
+            return false;
+        }
+        Set<String> bucket = bucketsByExpiry.get(bucketOf(expiration.getTime()));
+        return bucket != null && bucket.contains(tokenId);
+    }
+
+    // Une tranche antérieure à la tranche courante ne contient que des tokens expirés
+    @Scheduled(fixedDelayString = "${security.jwt.blacklist.cleanup-interval:3600000}")
+    public synchronized void purgeExpired() {
+        long currentBucket = bucketOf(System.currentTimeMillis());
+        if (!bucketsByExpiry.keySet().removeIf(bucket -> bucket < currentBucket)) {
+            return;
+        }
+
+        // Un filtre de Bloom ne supprime pas : on le reconstruit à partir des jti restants
+        int remaining = bucketsByExpiry.values().stream().mapToInt(Set::size).sum();
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, remaining * 2), FALSE_POSITIVE_RATE);
+        bucketsByExpiry.values().forEach(bucket -> bucket.forEach(rebuilt::put));
+        bloomFilter = rebuilt;
+    }
+
+    private long bucketOf(long epochMillis) {
+        return epochMillis / bucketWidth;
+    }
+
+    private static final class BloomFilter {
+
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(int expectedInsertions, double falsePositiveRate) {
+            long optimalBits = (long) (-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            int words = (int) Math.max(1, (optimalBits + 63) / 64);
+            this.bits = new AtomicLongArray(words);
+            this.bitCount = (long) words * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitCount);
+                long mask = 1L << index;
+                bits.getAndAccumulate((int) (index >>> 6), mask, (current, bit) -> current | bit);
+            }
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1);
+            for (int i = 0; i < hashCount; i++) {
+                long index = Math.floorMod(hash1 + i * hash2, bitCount);
+                if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        // FNV-1a 64 bits
+        private static long hash(String value) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            return hash;
+        }
+
+        // Finaliseur de SplitMix64, pour dériver un second hash indépendant
+        private static long mix(long z) {
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            return (z ^ (z >>> 31)) | 1L;
+        }
+    }
+}
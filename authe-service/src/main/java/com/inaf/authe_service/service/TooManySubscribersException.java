@@ -0,0 +1,12 @@
+package com.inaf.authe_service.service;
+
+/**
+ * Le nombre maximal d'abonnés à un flux SSE est atteint.
+ * Les contrôleurs la traduisent en 503 : le client peut se réabonner plus tard.
+ */
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
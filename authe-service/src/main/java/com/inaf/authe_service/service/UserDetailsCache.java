@@ -0,0 +1,90 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache des UserDetails par email, avec TTL et invalidation explicite.
+ * La date d'invalidation des tokens (users.tokens_valid_after) est lue en base à travers le même TTL :
+ * elle survit aux redémarrages et vaut pour toutes les instances, avec au plus un TTL de retard
+ * sur une autre instance (immédiat sur celle qui a modifié le compte).
+ */
+@Component
+public class UserDetailsCache {
+
+    // Aucune invalidation enregistrée pour le compte
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final Map<String, CachedUser> users = new ConcurrentHashMap<>();
+    private final Map<String, CachedValidity> tokensValidAfter = new ConcurrentHashMap<>();
+    private final UserRepository userRepository;
+
+    @Value("${security.user-cache.ttl:60000}")
+    private long ttl;
+
+    @Value("${security.user-cache.max-size:10000}")
+    private int maxSize;
+
+    public UserDetailsCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public UserDetails get(String username, Function<String, UserDetails> loader) {
+        long now = System.currentTimeMillis();
+        CachedUser cached = users.get(username);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.userDetails();
+        }
+
+        UserDetails userDetails = loader.apply(username);
+        if (users.size() >= maxSize) {
+            users.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+        if (users.size() < maxSize) {
+            users.put(username, new CachedUser(userDetails, now + ttl));
+        }
+        return userDetails;
+    }
+
+    // À appeler après l'enregistrement de users.tokens_valid_after : la prochaine lecture la recharge
+    public void invalidate(String username) {
+        users.remove(username);
+        tokensValidAfter.remove(username);
+    }
+
+    public boolean isInvalidatedSince(String username, Date issuedAt) {
+        long invalidation = tokensValidAfter(username);
+        return invalidation != NEVER && (issuedAt == null || issuedAt.getTime() <= invalidation);
+    }
+
+    private long tokensValidAfter(String username) {
+        long now = System.currentTimeMillis();
+        CachedValidity cached = tokensValidAfter.get(username);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.validAfter();
+        }
+
+        long validAfter = userRepository.findTokensValidAfterByEmail(username)
+                .map(time -> time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli())
+                .orElse(NEVER);
+        if (tokensValidAfter.size() >= maxSize) {
+            tokensValidAfter.values().removeIf(entry -> entry.expiresAt() <= now);
+        }
+        if (tokensValidAfter.size() < maxSize) {
+            tokensValidAfter.put(username, new CachedValidity(validAfter, now + ttl));
+        }
+        return validAfter;
+    }
+
+    private record CachedUser(UserDetails userDetails, long expiresAt) {}
+
+    private record CachedValidity(long validAfter, long expiresAt) {}
+}
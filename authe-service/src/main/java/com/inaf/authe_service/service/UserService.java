@@ -2,42 +2,98 @@ package com.inaf.authe_service.service;
 
 import com.inaf.authe_service.entity.User;
 import com.inaf.authe_service.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.ApplicationContext;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
+import java.time.Duration;
+import java.time.LocalDateTime;
 
 @Service
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
     private final ApplicationContext applicationContext;
+    private final UserDetailsCache userDetailsCache;
 
-    public UserService(UserRepository userRepository, ApplicationContext applicationContext) {
+    @Value("${security.account.lockout-duration:1800000}")
+    private long accountLockoutDuration;
+
+    public UserService(UserRepository userRepository, ApplicationContext applicationContext,
+                       UserDetailsCache userDetailsCache) {
         this.userRepository = userRepository;
         this.applicationContext = applicationContext;
+        this.userDetailsCache = userDetailsCache;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         User user = userRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + email));
+        unlockIfLockoutExpired(user);
 
         return org.springframework.security.core.userdetails.User.builder()
                 .username(user.getEmail())
                 .password(user.getPassword())
-                .authorities(new ArrayList<>()) // Ajoutez vos rôles ici si nécessaire
+                .authorities(user.getAuthorities())
+                .disabled(!user.isEnabled())
+                .accountExpired(!user.isAccountNonExpired())
+                .accountLocked(!user.isAccountNonLocked())
+                .credentialsExpired(!user.isCredentialsNonExpired())
                 .build();
     }
 
     public User saveUser(User user) {
         PasswordEncoder passwordEncoder = applicationContext.getBean(PasswordEncoder.class);
         user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+        user.setTokensValidAfter(LocalDateTime.now());
+        User savedUser = userRepository.save(user);
+        // Les tokens déjà émis ne doivent plus faire foi pour le rôle et le statut du compte
+        userDetailsCache.invalidate(savedUser.getEmail());
+        return savedUser;
+    }
+
+    // Appelé par DaoAuthenticationProvider avec le mot de passe déjà re-haché au coût configuré
+    @Override
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        userRepository.findByEmail(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newPassword);
+            userRepository.save(user);
+        });
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+                .password(newPassword)
+                .build();
+    }
+
+    // Verrouillage automatique après trop d'échecs de connexion
+    public void lockAccount(String email) {
+        userRepository.findByEmail(email)
+                .filter(User::isAccountNonLocked)
+                .ifPresent(user -> {
+                    user.setAccountNonLocked(false);
+                    user.setLockedAt(LocalDateTime.now());
+                    user.setTokensValidAfter(LocalDateTime.now());
+                    userRepository.save(user);
+                    userDetailsCache.invalidate(email);
+                });
+    }
+
+    // Seuls les verrouillages automatiques expirent ; un verrouillage sans date reste en place
+    private void unlockIfLockoutExpired(User user) {
+        if (user.isAccountNonLocked() || user.getLockedAt() == null) {
+            return;
+        }
+        if (user.getLockedAt().plus(Duration.ofMillis(accountLockoutDuration)).isBefore(LocalDateTime.now())) {
+            user.setAccountNonLocked(true);
+            user.setLockedAt(null);
+            userRepository.save(user);
+            userDetailsCache.invalidate(user.getEmail());
+        }
     }
 
     public User findByEmail(String email) {
@@ -0,0 +1,87 @@
+package com.inaf.authe_service.service;
+
+import com.inaf.authe_service.config.WorkloadClass;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limite le nombre de requêtes d'une classe de charge traitées en même temps.
+ * Une requête attend une place au plus {@code queueTimeout} ms ; si la file d'attente est pleine
+ * ou le délai dépassé elle est rejetée, sans jamais déborder sur la capacité des autres classes.
+ * Métriques : workload.active, workload.queued, workload.limit, workload.rejected, workload.queue.wait.
+ */
+public class WorkloadBulkhead {
+
+    private final WorkloadClass workload;
+    private final int maxQueued;
+    private final long queueTimeout;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Counter rejections;
+    private final Timer queueWait;
+
+    public WorkloadBulkhead(WorkloadClass workload, int maxConcurrent, int maxQueued, long queueTimeout,
+                            MeterRegistry meterRegistry) {
+        this.workload = workload;
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        String tag = workload.name().toLowerCase();
+        Gauge.builder("workload.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Requests of the workload class being processed")
+                .tag("workload", tag).register(meterRegistry);
+        Gauge.builder("workload.queued", queued, AtomicInteger::get)
+                .description("Requests of the workload class waiting for a slot")
+                .tag("workload", tag).register(meterRegistry);
+        Gauge.builder("workload.limit", () -> maxConcurrent)
+                .description("Maximum concurrent requests of the workload class")
+                .tag("workload", tag).register(meterRegistry);
+        this.rejections = Counter.builder("workload.rejected")
+                .description("Requests of the workload class rejected because it was saturated")
+                .tag("workload", tag).register(meterRegistry);
+        this.queueWait = Timer.builder("workload.queue.wait")
+                .description("Time spent waiting for a slot in the workload class")
+                .tag("workload", tag).register(meterRegistry);
+    }
+
+    // Prend une place ; false si la classe est saturée (la requête doit alors être rejetée)
+    public boolean tryEnter() throws InterruptedException {
+        // tryAcquire sans délai ignorerait l'équité et doublerait les requêtes en attente
+        if (permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+            queueWait.record(0, TimeUnit.MILLISECONDS);
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejections.increment();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (permits.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS)) {
+                queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                return true;
+            }
+            rejections.increment();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public void exit() {
+        permits.release();
+    }
+
+    public WorkloadClass getWorkload() {
+        return workload;
+    }
+}
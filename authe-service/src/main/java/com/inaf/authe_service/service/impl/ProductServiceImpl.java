@@ -1,29 +1,71 @@
 package com.inaf.authe_service.service.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inaf.authe_service.config.RetryOnConflict;
+import com.inaf.authe_service.dto.CursorPageDto;
+import com.inaf.authe_service.dto.ProductImportReportDto;
 import com.inaf.authe_service.dto.ProductRequestDto;
 import com.inaf.authe_service.dto.ProductResponseDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
 import com.inaf.authe_service.entity.Product;
+import com.inaf.authe_service.event.ProductChangedEvent;
+import com.inaf.authe_service.event.ProductDeletedEvent;
+import com.inaf.authe_service.event.ProductStockChangedEvent;
 import com.inaf.authe_service.repository.ProductRepository;
+import com.inaf.authe_service.service.LowStockTracker;
+import com.inaf.authe_service.service.ProductBulkImporter;
+import com.inaf.authe_service.service.ProductSearchIndex;
 import com.inaf.authe_service.service.ProductService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ProductServiceImpl implements ProductService {
 
+    private static final int EXPORT_FLUSH_INTERVAL = 500;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_AUTOCOMPLETE_SIZE = 50;
+    private static final int SEARCH_FETCH_BATCH_SIZE = 1000;
+
     private final ProductRepository productRepository;
+    private final ObjectMapper objectMapper;
+    private final ProductSearchIndex productSearchIndex;
+    private final LowStockTracker lowStockTracker;
+    private final ProductBulkImporter productBulkImporter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public ProductServiceImpl(ProductRepository productRepository) {
+    public ProductServiceImpl(ProductRepository productRepository, ObjectMapper objectMapper,
+                              ProductSearchIndex productSearchIndex, LowStockTracker lowStockTracker,
+                              ProductBulkImporter productBulkImporter, ApplicationEventPublisher eventPublisher) {
         this.productRepository = productRepository;
+        this.objectMapper = objectMapper;
+        this.productSearchIndex = productSearchIndex;
+        this.lowStockTracker = lowStockTracker;
+        this.productBulkImporter = productBulkImporter;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -41,36 +83,87 @@ public class ProductServiceImpl implements ProductService {
         );
 
         Product savedProduct = productRepository.save(product);
+        eventPublisher.publishEvent(changedEvent(savedProduct));
         return mapToResponseDto(savedProduct);
     }
 
     @Override
     @Transactional(readOnly = true)
     public ProductResponseDto getProductById(Long id) {
-        Product product = productRepository.findById(id)
+        return productRepository.findDtoById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-        return mapToResponseDto(product);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDto> getAllProducts(Pageable pageable) {
-        return productRepository.findAll(pageable)
-                .map(this::mapToResponseDto);
+        return productRepository.findAllDtos(pageable);
     }
 
 
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<ProductResponseDto> getProductsByCursor(String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new RuntimeException("Page size must be between 1 and " + MAX_CURSOR_PAGE_SIZE);
+        }
+
+        long afterId = 0L;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                afterId = Long.parseLong(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+            } catch (IllegalArgumentException e) {
+                throw new RuntimeException("Invalid pagination cursor");
+            }
+        }
+
+        // Fetch one extra row to know whether a next page exists
+        List<ProductResponseDto> products = productRepository.findDtosBySeekAfter(afterId, PageRequest.ofSize(size + 1));
+        boolean hasNext = products.size() > size;
+        List<ProductResponseDto> page = hasNext ? products.subList(0, size) : products;
+        String nextCursor = hasNext
+                ? Base64.getUrlEncoder().withoutPadding().encodeToString(
+                        String.valueOf(page.get(page.size() - 1).id()).getBytes(StandardCharsets.UTF_8))
+                : null;
+        return new CursorPageDto<>(page, nextCursor, hasNext, includeTotal ? productRepository.count() : null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDto> getAll() {
-        return productRepository.findAll()
-                .stream()
-                .map(this::mapToResponseDto)
-                .toList();
+        return productRepository.findAllDtos();
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream outputStream) {
+        // One NDJSON line per product, read through a database cursor so memory stays flat
+        try (Stream<ProductResponseDto> products = productRepository.streamAllDtos()) {
+            Iterator<ProductResponseDto> iterator = products.iterator();
+            int written = 0;
+            while (iterator.hasNext()) {
+                outputStream.write(objectMapper.writeValueAsBytes(iterator.next()));
+                outputStream.write('\n');
+                if (++written % EXPORT_FLUSH_INTERVAL == 0) {
+                    outputStream.flush();
+                }
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Product export failed", e);
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public ProductImportReportDto importProducts(InputStream inputStream, ProductBulkImporter.Format format) {
+        // The importer commits chunk by chunk, never inside a transaction spanning the whole file
+        return productBulkImporter.importProducts(inputStream, format);
+    }
+
+    @Override
+    @RetryOnConflict
     public ProductResponseDto updateProduct(Long id, ProductRequestDto requestDto) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -87,54 +180,75 @@ public class ProductServiceImpl implements ProductService {
         product.setQuantity(requestDto.quantity());
         product.setCategory(requestDto.category());
 
-        Product updatedProduct = productRepository.save(product);
+        // Flushed so that the event carries the incremented version
+        Product updatedProduct = productRepository.saveAndFlush(product);
+        eventPublisher.publishEvent(changedEvent(updatedProduct));
         return mapToResponseDto(updatedProduct);
     }
 
     @Override
+    @RetryOnConflict
     public void deleteProduct(Long id) {
         if (!productRepository.existsById(id)) {
             throw new RuntimeException("Product not found with id: " + id);
         }
         productRepository.deleteById(id);
+        eventPublisher.publishEvent(new ProductDeletedEvent(id));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDto> getProductsByCategory(String category) {
-        return productRepository.findByCategory(category)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        return productRepository.findByCategory(category);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDto> searchProducts(String searchTerm) {
-        return productRepository.findByNameContainingIgnoreCase(searchTerm)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        // The database LIKE scan is only used until the search index has been built
+        if (!productSearchIndex.isReady()) {
+            return productRepository.findByNameContainingIgnoreCase(searchTerm);
+        }
+        return findDtosInOrder(productSearchIndex.searchNames(searchTerm));
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<ProductResponseDto> searchProductsPaginated(String searchTerm, Pageable pageable) {
-        return productRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
-                        searchTerm, searchTerm, pageable)
-                .map(this::mapToResponseDto);
+        // The index ranks by relevance: an explicit sort is served by the database query
+        if (!productSearchIndex.isReady() || pageable.getSort().isSorted()) {
+            return productRepository.findByNameContainingIgnoreCaseOrDescriptionContainingIgnoreCase(
+                    searchTerm, searchTerm, pageable);
+        }
+
+        List<Long> ids = productSearchIndex.search(searchTerm);
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        return new PageImpl<>(findDtosInOrder(ids.subList(from, to)), pageable, ids.size());
+    }
+
+    @Override
+    public List<String> autocomplete(String prefix, int limit) {
+        return productSearchIndex.autocomplete(prefix, Math.min(Math.max(limit, 1), MAX_AUTOCOMPLETE_SIZE));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<ProductResponseDto> getLowStockProducts(Integer threshold) {
-        return productRepository.findLowStockProducts(threshold)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        // The database scan is only used until the low-stock tracker has been loaded
+        if (!lowStockTracker.isReady()) {
+            return productRepository.findLowStockProducts(threshold);
+        }
+        return findDtosInOrder(lowStockTracker.productIdsBelow(threshold));
     }
 
     @Override
+    public SseEmitter subscribeToLowStock(Integer threshold) {
+        return lowStockTracker.subscribe(threshold);
+    }
+
+    @Override
+    @RetryOnConflict
     public void updateStock(Long id, Integer newQuantity) {
         Product product = productRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
@@ -144,7 +258,27 @@ public class ProductServiceImpl implements ProductService {
         }
 
         product.setQuantity(newQuantity);
-        productRepository.save(product);
+        Product updatedProduct = productRepository.saveAndFlush(product);
+        eventPublisher.publishEvent(new ProductStockChangedEvent(
+                updatedProduct.getId(), updatedProduct.getQuantity(), updatedProduct.getVersion()));
+    }
+
+    // Loads the products found by the search index, keeping the ranking order
+    private List<ProductResponseDto> findDtosInOrder(List<Long> ids) {
+        Map<Long, ProductResponseDto> productsById = new HashMap<>();
+        for (int from = 0; from < ids.size(); from += SEARCH_FETCH_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + SEARCH_FETCH_BATCH_SIZE, ids.size()));
+            productRepository.findDtosByIdIn(batch).forEach(product -> productsById.put(product.id(), product));
+        }
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private ProductChangedEvent changedEvent(Product product) {
+        return new ProductChangedEvent(product.getId(), product.getName(), product.getDescription(),
+                product.getQuantity(), product.getVersion());
     }
 
     private ProductResponseDto mapToResponseDto(Product product) {
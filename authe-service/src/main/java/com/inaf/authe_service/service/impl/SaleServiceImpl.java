@@ -1,47 +1,110 @@
 package com.inaf.authe_service.service.impl;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.inaf.authe_service.Enum.PaymentMethod;
 import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.config.RetryOnConflict;
+import com.inaf.authe_service.dto.CursorPageDto;
+import com.inaf.authe_service.dto.SaleHeaderView;
 import com.inaf.authe_service.dto.SaleItemRequestDto;
 import com.inaf.authe_service.dto.SaleItemResponseDto;
+import com.inaf.authe_service.dto.SaleItemView;
 import com.inaf.authe_service.dto.SaleRequestDto;
 import com.inaf.authe_service.dto.SaleResponseDto;
 import com.inaf.authe_service.entity.Product;
 import com.inaf.authe_service.entity.Sale;
 import com.inaf.authe_service.entity.SaleItem;
+import com.inaf.authe_service.event.ProductStockChangedEvent;
 import com.inaf.authe_service.repository.ProductRepository;
+import com.inaf.authe_service.repository.SaleItemRepository;
 import com.inaf.authe_service.repository.SaleRepository;
+import com.inaf.authe_service.service.RevenueRollupService;
+import com.inaf.authe_service.service.SaleArchive;
+import com.inaf.authe_service.service.SaleNumberGenerator;
 import com.inaf.authe_service.service.SaleService;
+import com.inaf.authe_service.service.SaleStatusCounters;
+import com.inaf.authe_service.util.SearchNormalizer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class SaleServiceImpl implements SaleService {
 
+    private static final int ITEM_FETCH_BATCH_SIZE = 1000;
+    private static final int EXPORT_BATCH_SIZE = 500;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+
+    // Numéro de téléphone : chiffres et séparateurs usuels uniquement
+    private static final Pattern PHONE_TERM = Pattern.compile("\\+?[\\d\\s().-]+");
+    private static final int MIN_PHONE_PREFIX_DIGITS = 3;
+
+    // Seules les ventes dont le statut ne changera plus sont archivées
+    private static final Set<SaleStatus> ARCHIVABLE_STATUSES =
+            EnumSet.of(SaleStatus.DELIVERED, SaleStatus.CANCELLED, SaleStatus.REFUNDED);
+
     private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
     private final ProductRepository productRepository;
+    private final SaleNumberGenerator saleNumberGenerator;
+    private final ObjectMapper objectMapper;
+    private final RevenueRollupService revenueRollupService;
+    private final SaleStatusCounters saleStatusCounters;
+    private final SaleArchive saleArchive;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public SaleServiceImpl(SaleRepository saleRepository, ProductRepository productRepository) {
+    public SaleServiceImpl(SaleRepository saleRepository, SaleItemRepository saleItemRepository,
+                           ProductRepository productRepository, SaleNumberGenerator saleNumberGenerator,
+                           ObjectMapper objectMapper, RevenueRollupService revenueRollupService,
+                           SaleStatusCounters saleStatusCounters, SaleArchive saleArchive,
+                           ApplicationEventPublisher eventPublisher) {
         this.saleRepository = saleRepository;
+        this.saleItemRepository = saleItemRepository;
         this.productRepository = productRepository;
+        this.saleNumberGenerator = saleNumberGenerator;
+        this.objectMapper = objectMapper;
+        this.revenueRollupService = revenueRollupService;
+        this.saleStatusCounters = saleStatusCounters;
+        this.saleArchive = saleArchive;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public SaleResponseDto createSale(SaleRequestDto requestDto) {
         // Générer un numéro de vente unique
-        String saleNumber = generateSaleNumber();
+        String saleNumber = saleNumberGenerator.nextSaleNumber();
 
         Sale sale = new Sale(saleNumber, requestDto.customerName(),
                 requestDto.customerEmail(), requestDto.customerPhone());
@@ -56,26 +119,23 @@ public class SaleServiceImpl implements SaleService {
             sale.setPaymentMethod(PaymentMethod.valueOf(requestDto.paymentMethod().toUpperCase()));
         }
 
+        // Charger tous les produits du panier en une seule requête
+        Map<Long, Product> products = loadAndCheckStock(requestDto.saleItems());
+
         // Ajouter les articles de vente
         for (SaleItemRequestDto itemDto : requestDto.saleItems()) {
-            Product product = productRepository.findById(itemDto.productId())
-                    .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID: " + itemDto.productId()));
-
-            // Vérifier le stock disponible
-            if (product.getQuantity() < itemDto.quantity()) {
-                throw new RuntimeException("Stock insuffisant pour le produit: " + product.getName() +
-                        ". Stock disponible: " + product.getQuantity());
-            }
-
+            Product product = products.get(itemDto.productId());
             SaleItem saleItem = new SaleItem(product, itemDto.quantity(), itemDto.unitPrice());
             sale.addSaleItem(saleItem);
         }
 
         Sale savedSale = saleRepository.save(sale);
+        saleStatusCounters.onTransition(null, savedSale.getStatus());
         return mapToResponseDto(savedSale);
     }
 
     @Override
+    @RetryOnConflict
     public SaleResponseDto confirmSale(Long id) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
@@ -84,25 +144,27 @@ public class SaleServiceImpl implements SaleService {
             throw new RuntimeException("Seules les ventes en attente peuvent être confirmées");
         }
 
-        // Déduire les quantités du stock
-        for (SaleItem item : sale.getSaleItems()) {
-            Product product = item.getProduct();
-            int newQuantity = product.getQuantity() - item.getQuantity();
-
-            if (newQuantity < 0) {
-                throw new RuntimeException("Stock insuffisant pour confirmer la vente. Produit: " + product.getName());
+        // Déduire les quantités du stock (une mise à jour conditionnelle par produit)
+        Map<Long, Integer> quantities = quantitiesByProduct(sale);
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            if (productRepository.decrementStock(entry.getKey(), entry.getValue()) == 0) {
+                String productName = productRepository.findById(entry.getKey())
+                        .map(Product::getName)
+                        .orElse(String.valueOf(entry.getKey()));
+                throw new RuntimeException("Stock insuffisant pour confirmer la vente. Produit: " + productName);
             }
-
-            product.setQuantity(newQuantity);
-            productRepository.save(product);
         }
+        publishStockChanges(quantities.keySet());
 
+        revenueRollupService.onStatusChange(sale, sale.getStatus(), SaleStatus.CONFIRMED);
+        saleStatusCounters.onTransition(sale.getStatus(), SaleStatus.CONFIRMED);
         sale.setStatus(SaleStatus.CONFIRMED);
         Sale savedSale = saleRepository.save(sale);
         return mapToResponseDto(savedSale);
     }
 
     @Override
+    @RetryOnConflict
     public SaleResponseDto cancelSale(Long id) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
@@ -113,13 +175,13 @@ public class SaleServiceImpl implements SaleService {
 
         // Si la vente était confirmée, restaurer le stock
         if (sale.getStatus() == SaleStatus.CONFIRMED || sale.getStatus() == SaleStatus.SHIPPED) {
-            for (SaleItem item : sale.getSaleItems()) {
-                Product product = item.getProduct();
-                product.setQuantity(product.getQuantity() + item.getQuantity());
-                productRepository.save(product);
-            }
+            Map<Long, Integer> quantities = quantitiesByProduct(sale);
+            quantities.forEach(productRepository::incrementStock);
+            publishStockChanges(quantities.keySet());
         }
 
+        revenueRollupService.onStatusChange(sale, sale.getStatus(), SaleStatus.CANCELLED);
+        saleStatusCounters.onTransition(sale.getStatus(), SaleStatus.CANCELLED);
         sale.setStatus(SaleStatus.CANCELLED);
         Sale savedSale = saleRepository.save(sale);
         return mapToResponseDto(savedSale);
@@ -128,39 +190,96 @@ public class SaleServiceImpl implements SaleService {
     @Override
     @Transactional(readOnly = true)
     public SaleResponseDto getSaleById(Long id) {
-        Sale sale = saleRepository.findById(id)
+        // Une vente absente de la table principale peut avoir été archivée
+        return saleRepository.findWithItemsById(id)
+                .map(this::mapToResponseDto)
+                .or(() -> saleArchive.findById(id))
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
-        return mapToResponseDto(sale);
     }
 
     @Override
     @Transactional(readOnly = true)
     public SaleResponseDto getSaleByNumber(String saleNumber) {
-        Sale sale = saleRepository.findBySaleNumber(saleNumber)
+        return saleRepository.findBySaleNumber(saleNumber)
+                .map(this::mapToResponseDto)
+                .or(() -> saleArchive.findBySaleNumber(saleNumber))
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec le numéro: " + saleNumber));
-        return mapToResponseDto(sale);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SaleResponseDto> getAllSales(Pageable pageable) {
-        return saleRepository.findAll(pageable).map(this::mapToResponseDto);
+        return toResponsePage(saleRepository.findAllHeaders(pageable));
     }
 
 
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageDto<SaleResponseDto> getSalesByCursor(String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > MAX_CURSOR_PAGE_SIZE) {
+            throw new RuntimeException("La taille de page doit être comprise entre 1 et " + MAX_CURSOR_PAGE_SIZE);
+        }
+
+        // Une ligne de plus que demandé indique s'il existe une page suivante
+        Pageable limit = PageRequest.ofSize(size + 1);
+        List<SaleHeaderView> headers;
+        if (cursor == null || cursor.isBlank()) {
+            headers = saleRepository.findFirstHeadersBySeek(limit);
+        } else {
+            String[] position = decodeCursor(cursor).split("\\|", 2);
+            try {
+                headers = saleRepository.findHeadersBySeekAfter(
+                        LocalDateTime.parse(position[0]), Long.valueOf(position[1]), limit);
+            } catch (RuntimeException e) {
+                throw new RuntimeException("Curseur de pagination invalide");
+            }
+        }
+
+        boolean hasNext = headers.size() > size;
+        List<SaleHeaderView> page = hasNext ? headers.subList(0, size) : headers;
+        String nextCursor = null;
+        if (hasNext) {
+            SaleHeaderView last = page.get(page.size() - 1);
+            nextCursor = encodeCursor(last.getSaleDate() + "|" + last.getId());
+        }
+        return new CursorPageDto<>(toResponseDtos(page), nextCursor, hasNext,
+                includeTotal ? saleRepository.count() : null);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public List<SaleResponseDto> getAll() {
-        return saleRepository.findAll()
-                .stream()
-                .map(this::mapToResponseDto)
-                .toList();
+        return toResponseDtos(saleRepository.findAllHeaders());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAll(OutputStream outputStream) {
+        // Une ligne NDJSON par vente : curseur sur les en-têtes, articles chargés par lot
+        try (Stream<SaleHeaderView> headers = saleRepository.streamAllHeaders()) {
+            Iterator<SaleHeaderView> iterator = headers.iterator();
+            List<SaleHeaderView> batch = new ArrayList<>(EXPORT_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == EXPORT_BATCH_SIZE || !iterator.hasNext()) {
+                    for (SaleResponseDto sale : toResponseDtos(batch)) {
+                        outputStream.write(objectMapper.writeValueAsBytes(sale));
+                        outputStream.write('\n');
+                    }
+                    outputStream.flush();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Échec de l'export des ventes", e);
+        }
     }
 
 
 
     @Override
+    @RetryOnConflict
     public SaleResponseDto updateSale(Long id, SaleRequestDto requestDto) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
@@ -189,6 +308,7 @@ public class SaleServiceImpl implements SaleService {
     }
 
     @Override
+    @RetryOnConflict
     public void deleteSale(Long id) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
@@ -198,13 +318,17 @@ public class SaleServiceImpl implements SaleService {
         }
 
         saleRepository.deleteById(id);
+        saleStatusCounters.onTransition(sale.getStatus(), null);
     }
 
     @Override
+    @RetryOnConflict
     public SaleResponseDto updateSaleStatus(Long id, SaleStatus status) {
         Sale sale = saleRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Vente non trouvée avec l'ID: " + id));
 
+        revenueRollupService.onStatusChange(sale, sale.getStatus(), status);
+        saleStatusCounters.onTransition(sale.getStatus(), status);
         sale.setStatus(status);
         Sale savedSale = saleRepository.save(sale);
         return mapToResponseDto(savedSale);
@@ -213,54 +337,221 @@ public class SaleServiceImpl implements SaleService {
     @Override
     @Transactional(readOnly = true)
     public List<SaleResponseDto> getSalesByStatus(SaleStatus status) {
-        return saleRepository.findByStatus(status)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        return toResponseDtos(saleRepository.findHeadersByStatus(status));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<SaleResponseDto> getSalesByCustomer(String customerName) {
-        return saleRepository.findByCustomerNameContainingIgnoreCase(customerName)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        List<String> tokens = customerNameTokens(customerName);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        return toResponseDtos(saleRepository.findHeadersByCustomerName(mostSelectiveToken(tokens), customerNamePattern(tokens)));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<SaleResponseDto> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return saleRepository.findBySaleDateBetween(startDate, endDate)
-                .stream()
-                .map(this::mapToResponseDto)
-                .collect(Collectors.toList());
+        // Ventes archivées d'abord (plus anciennes) ; l'archive n'est lue que si la période la recoupe
+        List<SaleResponseDto> sales = new ArrayList<>(saleArchive.findBySaleDateBetween(startDate, endDate));
+        sales.addAll(toResponseDtos(saleRepository.findHeadersBySaleDateBetween(startDate, endDate)));
+        return sales;
     }
 
     @Override
     @Transactional(readOnly = true)
     public Page<SaleResponseDto> searchSales(String searchTerm, Pageable pageable) {
-        return saleRepository.findByCustomerNameContainingIgnoreCaseOrCustomerEmailContainingIgnoreCase(
-                        searchTerm, searchTerm, pageable)
-                .map(this::mapToResponseDto);
+        String term = searchTerm == null ? "" : searchTerm.trim();
+
+        // Email (exact ou début d'adresse), téléphone (début du numéro), sinon mots du nom client
+        if (term.contains("@")) {
+            return toResponsePage(saleRepository.searchHeadersByCustomerEmailPrefix(
+                    escapeLike(SearchNormalizer.normalizeEmail(term)), pageable));
+        }
+        String phoneDigits = SearchNormalizer.normalizePhone(term);
+        if (PHONE_TERM.matcher(term).matches() && phoneDigits != null && phoneDigits.length() >= MIN_PHONE_PREFIX_DIGITS) {
+            return toResponsePage(saleRepository.searchHeadersByCustomerPhonePrefix(phoneDigits, pageable));
+        }
+
+        List<String> tokens = customerNameTokens(term);
+        if (tokens.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        return toResponsePage(saleRepository.searchHeadersByCustomerNameOrEmail(mostSelectiveToken(tokens),
+                customerNamePattern(tokens), escapeLike(SearchNormalizer.normalizeEmail(term)), pageable));
     }
 
     @Override
     @Transactional(readOnly = true)
     public BigDecimal getTotalRevenueByPeriod(LocalDateTime startDate, LocalDateTime endDate) {
-        BigDecimal revenue = saleRepository.getTotalRevenueByPeriod(startDate, endDate);
-        return revenue != null ? revenue : BigDecimal.ZERO;
+        return revenueRollupService.getTotalRevenue(startDate, endDate);
+    }
+
+    @Override
+    public int rebuildRevenueRollups() {
+        return revenueRollupService.rebuild();
+    }
+
+    @Override
+    @RetryOnConflict
+    public int archiveSalesBefore(LocalDateTime cutoff, int batchSize) {
+        List<Long> ids = saleRepository.findArchivableIds(cutoff, ARCHIVABLE_STATUSES, PageRequest.ofSize(batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        // Copie dans l'archive et suppression dans la même transaction (verrouillage optimiste sur chaque vente)
+        List<Sale> sales = saleRepository.findWithItemsByIdIn(ids);
+        saleArchive.store(sales.stream().map(this::mapToResponseDto).toList());
+        saleRepository.deleteAll(sales);
+        sales.forEach(sale -> saleStatusCounters.onTransition(sale.getStatus(), null));
+        return sales.size();
     }
 
     @Override
     @Transactional(readOnly = true)
     public Long getSalesCountByStatus(SaleStatus status) {
+        // Compteurs en mémoire une fois initialisés au démarrage
+        if (saleStatusCounters.isReady()) {
+            return saleStatusCounters.count(status);
+        }
         return saleRepository.countByStatus(status);
     }
 
-    private String generateSaleNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        return "SALE-" + timestamp;
+    @Override
+    @Transactional(readOnly = true)
+    public Map<SaleStatus, Long> getSalesCountsByStatus() {
+        if (saleStatusCounters.isReady()) {
+            return saleStatusCounters.counts();
+        }
+        Map<SaleStatus, Long> counts = new EnumMap<>(SaleStatus.class);
+        for (SaleStatus status : SaleStatus.values()) {
+            counts.put(status, saleRepository.countByStatus(status));
+        }
+        return counts;
+    }
+
+    // Vérifie l'existence et le stock de tous les produits demandés, et signale toutes les erreurs ensemble
+    private Map<Long, Product> loadAndCheckStock(List<SaleItemRequestDto> items) {
+        Map<Long, Integer> requestedQuantities = new LinkedHashMap<>();
+        for (SaleItemRequestDto itemDto : items) {
+            requestedQuantities.merge(itemDto.productId(), itemDto.quantity(), Integer::sum);
+        }
+
+        Map<Long, Product> products = productRepository.findAllById(requestedQuantities.keySet())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<String> errors = new ArrayList<>();
+        requestedQuantities.forEach((productId, quantity) -> {
+            Product product = products.get(productId);
+            if (product == null) {
+                errors.add("Produit non trouvé avec l'ID: " + productId);
+            } else if (product.getQuantity() < quantity) {
+                errors.add("Stock insuffisant pour le produit: " + product.getName() +
+                        ". Stock disponible: " + product.getQuantity());
+            }
+        });
+
+        if (!errors.isEmpty()) {
+            throw new RuntimeException(String.join("; ", errors));
+        }
+        return products;
+    }
+
+    // Quantités regroupées par produit, triées par ID pour verrouiller les lignes dans un ordre stable
+    private Map<Long, Integer> quantitiesByProduct(Sale sale) {
+        Map<Long, Integer> quantities = new TreeMap<>();
+        for (SaleItem item : sale.getSaleItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Nouveaux niveaux de stock, relus en une requête et diffusés après le commit
+    private void publishStockChanges(Collection<Long> productIds) {
+        productRepository.findStockViewsByIdIn(productIds).forEach(stock -> eventPublisher.publishEvent(
+                new ProductStockChangedEvent(stock.getId(), stock.getQuantity(), stock.getVersion())));
+    }
+
+    private static String encodeCursor(String position) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Curseur de pagination invalide");
+        }
+    }
+
+    private Page<SaleResponseDto> toResponsePage(Page<SaleHeaderView> headers) {
+        return new PageImpl<>(toResponseDtos(headers.getContent()), headers.getPageable(), headers.getTotalElements());
+    }
+
+    // Assemble les DTO à partir des projections : une requête d'articles par lot de ventes
+    private List<SaleResponseDto> toResponseDtos(List<SaleHeaderView> headers) {
+        Map<Long, List<SaleItemResponseDto>> itemsBySale = new HashMap<>();
+        for (int from = 0; from < headers.size(); from += ITEM_FETCH_BATCH_SIZE) {
+            List<Long> saleIds = headers.subList(from, Math.min(from + ITEM_FETCH_BATCH_SIZE, headers.size()))
+                    .stream()
+                    .map(SaleHeaderView::getId)
+                    .toList();
+            for (SaleItemView item : saleItemRepository.findViewsBySaleIdIn(saleIds)) {
+                itemsBySale.computeIfAbsent(item.getSaleId(), k -> new ArrayList<>()).add(new SaleItemResponseDto(
+                        item.getId(),
+                        item.getProductId(),
+                        item.getProductName(),
+                        item.getQuantity(),
+                        item.getUnitPrice(),
+                        item.getSubtotal()
+                ));
+            }
+        }
+
+        return headers.stream()
+                .map(header -> new SaleResponseDto(
+                        header.getId(),
+                        header.getSaleNumber(),
+                        header.getCustomerName(),
+                        header.getCustomerEmail(),
+                        header.getCustomerPhone(),
+                        header.getStatus().name(),
+                        header.getTotalAmount(),
+                        header.getTaxAmount(),
+                        header.getDiscountAmount(),
+                        header.getPaymentMethod() != null ? header.getPaymentMethod().name() : null,
+                        header.getSaleDate(),
+                        header.getCreatedAt(),
+                        header.getUpdatedAt(),
+                        itemsBySale.getOrDefault(header.getId(), List.of()),
+                        header.getNotes()
+                ))
+                .toList();
+    }
+
+    // Mots normalisés du nom client recherché, tronqués comme dans l'index
+    private List<String> customerNameTokens(String customerName) {
+        return SearchNormalizer.tokens(SearchNormalizer.normalize(customerName)).stream()
+                .map(token -> token.length() > Sale.CUSTOMER_TOKEN_MAX_LENGTH
+                        ? token.substring(0, Sale.CUSTOMER_TOKEN_MAX_LENGTH) : token)
+                .toList();
+    }
+
+    // Le mot le plus long est en général le plus sélectif dans l'index
+    private String mostSelectiveToken(List<String> tokens) {
+        return tokens.stream().max(Comparator.comparingInt(String::length)).orElseThrow();
+    }
+
+    // Chaque mot saisi doit commencer un mot du nom, dans l'ordre : "% jean% dup%"
+    private String customerNamePattern(List<String> tokens) {
+        return tokens.stream().map(token -> "% " + token).collect(Collectors.joining()) + "%";
+    }
+
+    private String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
     }
 
     private SaleResponseDto mapToResponseDto(Sale sale) {
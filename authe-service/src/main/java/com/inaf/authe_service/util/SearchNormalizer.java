@@ -0,0 +1,51 @@
+package com.inaf.authe_service.util;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Normalises text for in-memory search: accents removed, lower case,
+ * every run of non alphanumeric characters collapsed to a single space.
+ */
+public final class SearchNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+");
+    private static final Pattern NON_DIGITS = Pattern.compile("\\D+");
+
+    private SearchNormalizer() {}
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) {
+            return "";
+        }
+        String withoutAccents = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(withoutAccents.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public static String normalizeEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return null;
+        }
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Digits only, so that "+33 6 12-34" and "33612 34" share the same key
+    public static String normalizePhone(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        String digits = NON_DIGITS.matcher(phone).replaceAll("");
+        return digits.isEmpty() ? null : digits;
+    }
+
+    public static List<String> tokens(String normalized) {
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(normalized.split(" ")).distinct().toList();
+    }
+}
@@ -0,0 +1,64 @@
+-- Baseline: schema previously created by ddl-auto=update, before the sequence, versioning,
+-- customer search, revenue rollup and lockout changes (those come in V2).
+-- Existing databases are baselined at this version (spring.flyway.baseline-on-migrate) and skip it.
+
+CREATE TABLE users (
+    id                      BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    username                VARCHAR(255) NOT NULL,
+    email                   VARCHAR(255) NOT NULL,
+    password                VARCHAR(255) NOT NULL,
+    role                    VARCHAR(255),
+    enabled                 BOOLEAN      NOT NULL,
+    account_non_expired     BOOLEAN      NOT NULL,
+    account_non_locked      BOOLEAN      NOT NULL,
+    credentials_non_expired BOOLEAN      NOT NULL,
+    CONSTRAINT pk_users PRIMARY KEY (id),
+    CONSTRAINT uk_users_username UNIQUE (username),
+    CONSTRAINT uk_users_email UNIQUE (email),
+    CONSTRAINT ck_users_role CHECK (role IN ('USER', 'ADMIN'))
+);
+
+CREATE TABLE products (
+    id          BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    name        VARCHAR(255)   NOT NULL,
+    description VARCHAR(255),
+    price       NUMERIC(10, 2) NOT NULL,
+    quantity    INTEGER        NOT NULL,
+    category    VARCHAR(255),
+    created_at  TIMESTAMP(6),
+    updated_at  TIMESTAMP(6),
+    CONSTRAINT pk_products PRIMARY KEY (id)
+);
+
+CREATE TABLE sales (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    sale_number     VARCHAR(255)   NOT NULL,
+    customer_name   VARCHAR(255),
+    customer_email  VARCHAR(255),
+    customer_phone  VARCHAR(255),
+    status          VARCHAR(255)   NOT NULL,
+    total_amount    NUMERIC(12, 2) NOT NULL,
+    tax_amount      NUMERIC(10, 2),
+    discount_amount NUMERIC(10, 2),
+    payment_method  VARCHAR(255),
+    sale_date       TIMESTAMP(6)   NOT NULL,
+    notes           TEXT,
+    created_at      TIMESTAMP(6),
+    updated_at      TIMESTAMP(6),
+    CONSTRAINT pk_sales PRIMARY KEY (id),
+    CONSTRAINT uk_sales_sale_number UNIQUE (sale_number),
+    CONSTRAINT ck_sales_status CHECK (status IN ('PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'REFUNDED')),
+    CONSTRAINT ck_sales_payment_method CHECK (payment_method IN ('CASH', 'CREDIT_CARD', 'DEBIT_CARD', 'BANK_TRANSFER', 'MOBILE_PAYMENT', 'CHECK'))
+);
+
+CREATE TABLE sale_items (
+    id         BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    sale_id    BIGINT         NOT NULL,
+    product_id BIGINT         NOT NULL,
+    quantity   INTEGER        NOT NULL,
+    unit_price NUMERIC(10, 2) NOT NULL,
+    subtotal   NUMERIC(12, 2) NOT NULL,
+    CONSTRAINT pk_sale_items PRIMARY KEY (id),
+    CONSTRAINT fk_sale_items_sale FOREIGN KEY (sale_id) REFERENCES sales (id),
+    CONSTRAINT fk_sale_items_product FOREIGN KEY (product_id) REFERENCES products (id)
+);
@@ -0,0 +1,42 @@
+-- Schema changes made since the ddl-auto=update baseline; applied to fresh and baselined databases alike.
+
+-- Optimistic locking on products and sales
+ALTER TABLE products ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE sales ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+
+-- Account lockout
+ALTER TABLE users ADD COLUMN locked_at TIMESTAMP(6);
+
+-- Normalized customer search keys; existing sales keep customer_indexed NULL and are filled by CustomerSearchBackfill
+ALTER TABLE sales ADD COLUMN customer_name_key VARCHAR(255);
+ALTER TABLE sales ADD COLUMN customer_email_key VARCHAR(255);
+ALTER TABLE sales ADD COLUMN customer_phone_key VARCHAR(255);
+ALTER TABLE sales ADD COLUMN customer_indexed BOOLEAN;
+
+CREATE INDEX idx_sales_customer_email_key ON sales (customer_email_key);
+CREATE INDEX idx_sales_customer_phone_key ON sales (customer_phone_key);
+
+CREATE TABLE sale_customer_tokens (
+    sale_id BIGINT      NOT NULL,
+    token   VARCHAR(64) NOT NULL,
+    CONSTRAINT pk_sale_customer_tokens PRIMARY KEY (sale_id, token),
+    CONSTRAINT fk_sale_customer_tokens_sale FOREIGN KEY (sale_id) REFERENCES sales (id)
+);
+
+CREATE INDEX idx_sale_customer_tokens_token ON sale_customer_tokens (token);
+
+-- Daily revenue rollups, rebuilt from the confirmed sales when empty (RevenueRollupService)
+CREATE TABLE daily_revenue (
+    revenue_day    DATE           NOT NULL,
+    payment_method VARCHAR(32)    NOT NULL,
+    stripe         INTEGER        NOT NULL,
+    revenue        NUMERIC(14, 2) NOT NULL,
+    sale_count     BIGINT         NOT NULL,
+    CONSTRAINT pk_daily_revenue PRIMARY KEY (revenue_day, payment_method, stripe)
+);
+
+-- Pooled id sequences (allocation size 50); PostgreSQL moves them past the existing ids in V3
+CREATE SEQUENCE products_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE sales_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE sale_items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE users_seq START WITH 1 INCREMENT BY 50;
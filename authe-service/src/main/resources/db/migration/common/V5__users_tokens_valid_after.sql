@@ -0,0 +1,3 @@
+-- Tokens issued at or before this time no longer vouch for the account status and role in their claims.
+-- Persisted so that every instance sees it, including after a restart.
+ALTER TABLE users ADD COLUMN tokens_valid_after TIMESTAMP(6);
@@ -0,0 +1,6 @@
+-- Indexes matching the repository query paths (H2: no partial, expression or operator class indexes;
+-- foreign key columns are indexed automatically).
+
+CREATE INDEX idx_sales_status_sale_date ON sales (status, sale_date);
+CREATE INDEX idx_sales_sale_date_id ON sales (sale_date, id);
+CREATE INDEX idx_products_category ON products (category);
@@ -0,0 +1,4 @@
+-- Product names are unique regardless of case (H2: no expression indexes, so the lower-cased name
+-- is a generated column carrying the unique index; ProductBulkImporter merges on it).
+ALTER TABLE products ADD COLUMN name_key VARCHAR(255) GENERATED ALWAYS AS (LOWER(name));
+CREATE UNIQUE INDEX uk_products_name_key ON products (name_key);
@@ -0,0 +1,39 @@
+-- Indexes matching the repository query paths (PostgreSQL).
+-- IF NOT EXISTS: databases baselined from ddl-auto=update may already have some of them.
+
+-- SaleRepository.findHeadersByStatus / countByStatus
+CREATE INDEX IF NOT EXISTS idx_sales_status_sale_date ON sales (status, sale_date);
+
+-- getTotalRevenueByPeriod / sumConfirmedRevenueFromUntil: only confirmed sales are summed,
+-- total_amount is included so the sum is an index-only scan
+CREATE INDEX IF NOT EXISTS idx_sales_confirmed_sale_date ON sales (sale_date) INCLUDE (total_amount)
+    WHERE status = 'CONFIRMED';
+
+-- findHeadersBySaleDateBetween and the keyset pagination (ORDER BY sale_date DESC, id DESC)
+CREATE INDEX IF NOT EXISTS idx_sales_sale_date_id ON sales (sale_date, id);
+
+-- Sales not yet processed by CustomerSearchBackfill
+CREATE INDEX IF NOT EXISTS idx_sales_customer_unindexed ON sales (id) WHERE customer_indexed IS NULL;
+
+-- Customer prefix searches (LIKE 'prefix%'): text_pattern_ops is required unless the collation is C.
+-- customer_email_key stores LOWER(TRIM(customer_email)), so its index also serves case-insensitive
+-- whole-email lookups and replaces an expression index on LOWER(customer_email).
+DROP INDEX IF EXISTS idx_sales_customer_email_key;
+CREATE INDEX idx_sales_customer_email_key ON sales (customer_email_key text_pattern_ops);
+DROP INDEX IF EXISTS idx_sales_customer_phone_key;
+CREATE INDEX idx_sales_customer_phone_key ON sales (customer_phone_key text_pattern_ops);
+DROP INDEX IF EXISTS idx_sale_customer_tokens_token;
+CREATE INDEX idx_sale_customer_tokens_token ON sale_customer_tokens (token text_pattern_ops);
+
+-- Foreign keys are not indexed automatically by PostgreSQL
+CREATE INDEX IF NOT EXISTS idx_sale_items_sale_id ON sale_items (sale_id);
+CREATE INDEX IF NOT EXISTS idx_sale_items_product_id ON sale_items (product_id);
+
+-- ProductRepository.findByCategory
+CREATE INDEX IF NOT EXISTS idx_products_category ON products (category);
+
+-- Id sequences: a database baselined from ddl-auto=update already has rows with identity ids
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM products) + 50, (SELECT last_value FROM products_seq)));
+SELECT setval('sales_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM sales) + 50, (SELECT last_value FROM sales_seq)));
+SELECT setval('sale_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM sale_items) + 50, (SELECT last_value FROM sale_items_seq)));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users) + 50, (SELECT last_value FROM users_seq)));
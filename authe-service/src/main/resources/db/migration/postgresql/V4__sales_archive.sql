@@ -0,0 +1,15 @@
+-- Cold storage for archived sales, partitioned by sale month.
+-- Monthly partitions are created by the archiving job (SaleArchive) before it inserts into them.
+CREATE TABLE sales_archive (
+    sale_id     BIGINT       NOT NULL,
+    sale_number VARCHAR(255) NOT NULL,
+    sale_date   TIMESTAMP(6) NOT NULL,
+    status      VARCHAR(255) NOT NULL,
+    -- Whole sale (items included) as gzip-compressed JSON
+    payload     BYTEA        NOT NULL,
+    archived_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT pk_sales_archive PRIMARY KEY (sale_id, sale_date)
+) PARTITION BY RANGE (sale_date);
+
+CREATE INDEX idx_sales_archive_sale_number ON sales_archive (sale_number);
+CREATE INDEX idx_sales_archive_sale_date ON sales_archive (sale_date);
@@ -0,0 +1,7 @@
+-- Product names are unique regardless of case: ProductServiceImpl checks it before writing,
+-- ProductBulkImporter upserts on it (INSERT ... ON CONFLICT (lower(name))).
+-- Duplicates left by concurrent creations keep the name on their oldest product; the others get their id appended.
+UPDATE products p SET name = LEFT(p.name, 230) || ' (#' || p.id || ')'
+WHERE EXISTS (SELECT 1 FROM products o WHERE lower(o.name) = lower(p.name) AND o.id < p.id);
+
+CREATE UNIQUE INDEX uk_products_name_lower ON products (lower(name));
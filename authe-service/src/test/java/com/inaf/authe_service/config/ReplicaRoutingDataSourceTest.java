@@ -0,0 +1,185 @@
+package com.inaf.authe_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Routing between two in-memory H2 databases standing for the primary and a replica.
+ * Each database holds a single row naming itself, so a query tells which one served it.
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private static final String LAG_QUERY = "SELECT lag FROM replication_lag";
+
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    private HikariDataSource primary;
+    private HikariDataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+        pools.forEach(HikariDataSource::close);
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        Routing routing = routing(List.of(replica), 1000);
+
+        assertThat(routing.read()).isEqualTo("replica");
+        assertThat(routing.write()).isEqualTo("primary");
+        assertThat(routing.jdbcTemplate.queryForObject("SELECT name FROM node", String.class)).isEqualTo("primary");
+    }
+
+    @Test
+    void userReadsItsOwnWritesFromThePrimary() throws InterruptedException {
+        Routing routing = routing(List.of(replica), 200);
+
+        authenticate("alice");
+        routing.write();
+        assertThat(routing.read()).isEqualTo("primary");
+
+        authenticate("bob");
+        assertThat(routing.read()).isEqualTo("replica");
+
+        Thread.sleep(250);
+        authenticate("alice");
+        assertThat(routing.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void rolledBackWriteDoesNotPinTheUserToThePrimary() {
+        Routing routing = routing(List.of(replica), 1000);
+
+        authenticate("alice");
+        routing.transactionTemplate.executeWithoutResult(status -> {
+            routing.jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+            status.setRollbackOnly();
+        });
+
+        assertThat(routing.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void laggingReplicaIsSkippedUntilItCatchesUp() {
+        Routing routing = routing(List.of(replica), 1000);
+        JdbcTemplate replicaTemplate = new JdbcTemplate(replica);
+
+        replicaTemplate.update("UPDATE replication_lag SET lag = 60000");
+        routing.dataSource.checkReplicas();
+        assertThat(routing.read()).isEqualTo("primary");
+
+        replicaTemplate.update("UPDATE replication_lag SET lag = 0");
+        routing.dataSource.checkReplicas();
+        assertThat(routing.read()).isEqualTo("replica");
+    }
+
+    @Test
+    void unreachableReplicaFallsBackToThePrimary() {
+        HikariDataSource unreachable = unreachable();
+        Routing routing = routing(List.of(unreachable), 1000);
+
+        assertThat(routing.read()).isEqualTo("primary");
+
+        routing.dataSource.checkReplicas();
+        assertThat(routing.read()).isEqualTo("primary");
+    }
+
+    @Test
+    void roundRobinSkipsUnavailableReplicas() {
+        HikariDataSource unreachable = unreachable();
+        Routing routing = routing(List.of(unreachable, replica), 1000);
+
+        routing.dataSource.checkReplicas();
+        for (int i = 0; i < 4; i++) {
+            assertThat(routing.read()).isEqualTo("replica");
+        }
+    }
+
+    private Routing routing(List<HikariDataSource> replicas, long readYourWritesWindow) {
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas,
+                ReplicaRoutingDataSource.Strategy.ROUND_ROBIN, LAG_QUERY, 5000, readYourWritesWindow);
+        return new Routing(dataSource, new LazyConnectionDataSourceProxy(dataSource));
+    }
+
+    private HikariDataSource database(String name) {
+        HikariDataSource dataSource = pool("jdbc:h2:mem:routing-" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        jdbcTemplate.execute("CREATE TABLE replication_lag (lag BIGINT)");
+        jdbcTemplate.update("INSERT INTO replication_lag (lag) VALUES (0)");
+        return dataSource;
+    }
+
+    // A replica that refuses every connection; the short timeout keeps the fallback tests fast
+    private HikariDataSource unreachable() {
+        HikariDataSource dataSource = pool("jdbc:h2:mem:routing-missing;IFEXISTS=TRUE");
+        dataSource.setConnectionTimeout(250);
+        return dataSource;
+    }
+
+    private HikariDataSource pool(String url) {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(url);
+        dataSource.setMaximumPoolSize(2);
+        dataSource.setInitializationFailTimeout(-1);
+        pools.add(dataSource);
+        return dataSource;
+    }
+
+    private static void authenticate(String username) {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    }
+
+    private static final class Routing {
+
+        private final ReplicaRoutingDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final TransactionTemplate transactionTemplate;
+        private final TransactionTemplate readOnlyTransactionTemplate;
+
+        private Routing(ReplicaRoutingDataSource dataSource, LazyConnectionDataSourceProxy proxy) {
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(proxy);
+            DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(proxy);
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+            this.readOnlyTransactionTemplate.setReadOnly(true);
+        }
+
+        private String read() {
+            return readOnlyTransactionTemplate.execute(status ->
+                    jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        }
+
+        private String write() {
+            return transactionTemplate.execute(status -> {
+                jdbcTemplate.update("UPDATE node SET name = name");
+                return jdbcTemplate.queryForObject("SELECT name FROM node", String.class);
+            });
+        }
+    }
+}
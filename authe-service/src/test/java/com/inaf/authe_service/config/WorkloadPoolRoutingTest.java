@@ -0,0 +1,67 @@
+package com.inaf.authe_service.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The NDJSON exports write their body on the Spring MVC async executor: the REPORTING workload must
+ * follow the request there, otherwise the export would borrow connections from the interactive pool.
+ * Runs on an in-memory H2 database: pool routing does not depend on the database vendor.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:workload-routing",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.default_schema=PUBLIC"
+})
+class WorkloadPoolRoutingTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Test
+    void asyncExecutorIsTheDecoratedApplicationTaskExecutor() {
+        assertThat(applicationContext.containsBean("applicationTaskExecutor")).isTrue();
+    }
+
+    @Test
+    void productExportUsesTheReportingPool() {
+        assertExportUsesReportingPool("/api/products/export");
+    }
+
+    @Test
+    void saleExportUsesTheReportingPool() {
+        assertExportUsesReportingPool("/api/sales/export");
+    }
+
+    private void assertExportUsesReportingPool(String path) {
+        long before = acquisitions("workload-reporting");
+
+        ResponseEntity<String> response = restTemplate.getForEntity(path, String.class);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(acquisitions("workload-reporting")).isGreaterThan(before);
+    }
+
+    private long acquisitions(String pool) {
+        Timer timer = meterRegistry.find("hikaricp.connections.acquire").tag("pool", pool).timer();
+        return timer != null ? timer.count() : 0;
+    }
+}
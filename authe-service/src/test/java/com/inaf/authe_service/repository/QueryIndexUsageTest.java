@@ -0,0 +1,279 @@
+package com.inaf.authe_service.repository;
+
+import com.inaf.authe_service.Enum.SaleStatus;
+import com.inaf.authe_service.util.SearchNormalizer;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks on a real PostgreSQL, migrated by Flyway and seeded with a few thousand rows,
+ * that the SQL Hibernate generates for the repository query methods is planned with the expected index.
+ * Each case calls the real repository method; the statements it executes are captured at the JDBC level
+ * together with their bound parameters, then the captured SELECT is explained.
+ * Sequential scans are disabled for the EXPLAIN so the check does not depend on the table sizes:
+ * a plan without the index means no index matches the predicate.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryIndexUsageTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        registry.add("spring.jpa.database-platform", () -> "org.hibernate.dialect.PostgreSQLDialect");
+    }
+
+    private static final List<ExecutedStatement> EXECUTED = new CopyOnWriteArrayList<>();
+
+    @TestConfiguration
+    static class StatementCaptureConfig {
+
+        // Wraps the DataSource Hibernate uses so every prepared statement is recorded with its parameters
+        @Bean
+        static BeanPostProcessor statementCapture() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                        return proxy(DataSource.class, dataSource, (method, args, result) ->
+                                result instanceof Connection connection
+                                        ? proxy(Connection.class, connection, QueryIndexUsageTest::capturing)
+                                        : result);
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SaleRepository saleRepository;
+
+    @Autowired
+    private SaleItemRepository saleItemRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeAll
+    void seed() {
+        jdbcTemplate.execute("""
+                INSERT INTO products (id, name, description, price, quantity, category, created_at, updated_at, version)
+                SELECT g, 'Product ' || g, 'Description ' || g, 10.00, g % 100, 'category-' || (g % 50), now(), now(), 0
+                FROM generate_series(1, 5000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO sales (id, sale_number, customer_name, customer_email, customer_phone,
+                                   customer_name_key, customer_email_key, customer_phone_key, customer_indexed,
+                                   status, total_amount, tax_amount, discount_amount, payment_method, sale_date,
+                                   created_at, updated_at, version)
+                SELECT g, 'SALE-' || g, 'Jean Dupont' || g, 'Customer' || g || '@Example.com', '0600' || lpad(g::text, 6, '0'),
+                       ' jean dupont' || g, 'customer' || g || '@example.com', '0600' || lpad(g::text, 6, '0'),
+                       CASE WHEN g % 100 = 0 THEN NULL ELSE TRUE END,
+                       (ARRAY['PENDING', 'CONFIRMED', 'SHIPPED', 'DELIVERED', 'CANCELLED', 'REFUNDED'])[1 + g % 6],
+                       25.00, 0, 0, 'CASH', now() - (g || ' minutes')::interval, now(), now(), 0
+                FROM generate_series(1, 20000) g
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO sale_customer_tokens (sale_id, token)
+                SELECT g, t FROM generate_series(1, 20000) g, unnest(ARRAY['jean', 'dupont' || g]) t
+                """);
+        jdbcTemplate.execute("""
+                INSERT INTO sale_items (id, sale_id, product_id, quantity, unit_price, subtotal)
+                SELECT g, 1 + g % 20000, 1 + g % 5000, 1, 10.00, 10.00
+                FROM generate_series(1, 40000) g
+                """);
+        jdbcTemplate.execute("VACUUM ANALYZE");
+    }
+
+    Stream<Arguments> repositoryQueries() {
+        LocalDateTime now = LocalDateTime.now();
+        return Stream.of(
+                query("SaleRepository.findHeadersByStatus", "idx_sales_status_sale_date",
+                        () -> saleRepository.findHeadersByStatus(SaleStatus.PENDING)),
+                query("SaleRepository.findHeadersBySaleDateBetween", "idx_sales_sale_date_id",
+                        () -> saleRepository.findHeadersBySaleDateBetween(now.minusDays(2), now)),
+                query("SaleRepository.findHeadersBySeekAfter", "idx_sales_sale_date_id",
+                        () -> saleRepository.findHeadersBySeekAfter(now.minusDays(1), 1440L, PageRequest.of(0, 50))),
+                query("SaleRepository.getTotalRevenueByPeriod", "idx_sales_confirmed_sale_date",
+                        () -> saleRepository.getTotalRevenueByPeriod(now.minusDays(2), now)),
+                query("SaleRepository.searchHeadersByCustomerEmailPrefix", "idx_sales_customer_email_key",
+                        () -> saleRepository.searchHeadersByCustomerEmailPrefix("customer42", PageRequest.of(0, 20))),
+                // Case-insensitive email lookup: customer_email_key holds the lowercased email
+                query("SaleRepository.searchHeadersByCustomerEmailPrefix (whole email)", "idx_sales_customer_email_key",
+                        () -> saleRepository.searchHeadersByCustomerEmailPrefix(
+                                SearchNormalizer.normalizeEmail(" Customer42@Example.COM "), PageRequest.of(0, 20))),
+                query("SaleRepository.searchHeadersByCustomerPhonePrefix", "idx_sales_customer_phone_key",
+                        () -> saleRepository.searchHeadersByCustomerPhonePrefix("0600042", PageRequest.of(0, 20))),
+                query("SaleRepository.findHeadersByCustomerName", "idx_sale_customer_tokens_token",
+                        () -> saleRepository.findHeadersByCustomerName("dupont42", "% jean% dupont42%")),
+                query("SaleRepository.findCustomerUnindexedIds", "idx_sales_customer_unindexed",
+                        () -> saleRepository.findCustomerUnindexedIds(PageRequest.of(0, 500))),
+                query("SaleItemRepository.findViewsBySaleIdIn", "idx_sale_items_sale_id",
+                        () -> saleItemRepository.findViewsBySaleIdIn(List.of(42L, 43L, 44L))),
+                query("SaleItemRepository.findByProductId", "idx_sale_items_product_id",
+                        () -> saleItemRepository.findByProductId(42L)),
+                query("ProductRepository.findByCategory", "idx_products_category",
+                        () -> productRepository.findByCategory("category-7"))
+        );
+    }
+
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("repositoryQueries")
+    void queryUsesIndex(String repositoryMethod, String expectedIndex, Runnable call) {
+        EXECUTED.clear();
+        call.run();
+        ExecutedStatement select = EXECUTED.stream()
+                .filter(statement -> statement.thread() == Thread.currentThread())
+                .filter(statement -> statement.sql().regionMatches(true, 0, "select", 0, 6))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError(repositoryMethod + " did not execute any SELECT"));
+
+        // Parameters are inlined as literals: that is the custom plan PostgreSQL uses
+        // for the first executions of a prepared statement
+        String sql = select.inlined();
+        String plan = jdbcTemplate.execute((ConnectionCallback<String>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET enable_seqscan = off");
+                StringBuilder lines = new StringBuilder();
+                try (ResultSet rs = statement.executeQuery("EXPLAIN " + sql)) {
+                    while (rs.next()) {
+                        lines.append(rs.getString(1)).append('\n');
+                    }
+                }
+                statement.execute("RESET enable_seqscan");
+                return lines.toString();
+            }
+        });
+
+        assertThat(plan).as(repositoryMethod + "\n" + sql).contains(expectedIndex);
+    }
+
+    private static Arguments query(String repositoryMethod, String expectedIndex, Runnable call) {
+        return Arguments.of(repositoryMethod, expectedIndex, call);
+    }
+
+    // Statements prepared on a wrapped connection record their bound parameters and each execution
+    private static Object capturing(Method method, Object[] args, Object result) {
+        if (result instanceof PreparedStatement statement && method.getName().equals("prepareStatement")) {
+            String sql = (String) args[0];
+            Map<Integer, Object> parameters = new TreeMap<>();
+            return proxy(PreparedStatement.class, statement, (call, callArgs, callResult) -> {
+                String name = call.getName();
+                if (name.startsWith("set") && callArgs != null && callArgs.length >= 2
+                        && callArgs[0] instanceof Integer index) {
+                    parameters.put(index, name.equals("setNull") ? null : callArgs[1]);
+                } else if (name.equals("clearParameters")) {
+                    parameters.clear();
+                } else if (name.startsWith("execute")) {
+                    EXECUTED.add(new ExecutedStatement(withoutComment(sql), new TreeMap<>(parameters),
+                            Thread.currentThread()));
+                }
+                return callResult;
+            });
+        }
+        return result;
+    }
+
+    // hibernate.use_sql_comments prefixes each statement with its JPQL, which may contain quotes
+    private static String withoutComment(String sql) {
+        String trimmed = sql.strip();
+        return trimmed.startsWith("/*") ? trimmed.substring(trimmed.indexOf("*/") + 2).strip() : trimmed;
+    }
+
+    private interface AfterCall {
+        Object apply(Method method, Object[] args, Object result) throws Exception;
+    }
+
+    // The real call runs first so setX/execute keep the driver's behaviour
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, T target, AfterCall afterCall) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getName().equals("unwrap") && args[0] instanceof Class<?> wanted && wanted.isInstance(proxy)) {
+                return proxy;
+            }
+            Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            return afterCall.apply(method, args, result);
+        };
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private record ExecutedStatement(String sql, Map<Integer, Object> parameters, Thread thread) {
+
+        String inlined() {
+            StringBuilder sql = new StringBuilder();
+            boolean quoted = false;
+            int index = 0;
+            for (char c : this.sql.toCharArray()) {
+                if (c == '\'') {
+                    quoted = !quoted;
+                }
+                if (c == '?' && !quoted) {
+                    sql.append(literal(parameters.get(++index)));
+                } else {
+                    sql.append(c);
+                }
+            }
+            return sql.toString();
+        }
+
+        private static String literal(Object value) {
+            if (value == null) {
+                return "NULL";
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                return value.toString();
+            }
+            return "'" + value.toString().replace("'", "''") + "'";
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.inaf.authe_service.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class LoginAttemptServiceTest {
+
+    private static final long WINDOW = 900_000;
+    // Start of a window
+    private static final long START = 2_000 * WINDOW;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private UserService userService;
+    private LoginAttemptService attempts;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        attempts = new LoginAttemptService(userService, now::get);
+        ReflectionTestUtils.setField(attempts, "enabled", true);
+        ReflectionTestUtils.setField(attempts, "maxAttemptsPerEmail", 5);
+        ReflectionTestUtils.setField(attempts, "maxAttemptsPerIp", 50);
+        ReflectionTestUtils.setField(attempts, "window", WINDOW);
+        ReflectionTestUtils.setField(attempts, "emailSketchWidth", 1024);
+        ReflectionTestUtils.setField(attempts, "ipSketchWidth", 1024);
+        ReflectionTestUtils.setField(attempts, "trackedEmailsMaxSize", 1000);
+        ReflectionTestUtils.setField(attempts, "maxLoginAttemptsBeforeLock", 5);
+        attempts.init();
+    }
+
+    @Test
+    void emailIsBlockedAfterMaxAttempts() {
+        failures("alice@example.com", "10.0.0.1", 4);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+
+        failures("alice@example.com", "10.0.0.1", 1);
+
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isTrue();
+        // The email is blocked from any address, and is case-insensitive
+        assertThat(attempts.isBlocked("ALICE@example.com", "10.0.0.2")).isTrue();
+        assertThat(attempts.isBlocked("bob@example.com", "10.0.0.2")).isFalse();
+    }
+
+    @Test
+    void accountIsLockedOnceTheFailureThresholdIsReached() {
+        failures("alice@example.com", "10.0.0.1", 4);
+        verify(userService, never()).lockAccount(anyString());
+
+        failures("alice@example.com", "10.0.0.1", 1);
+
+        verify(userService, times(1)).lockAccount("alice@example.com");
+    }
+
+    @Test
+    void addressIsBlockedAfterMaxAttemptsAcrossEmails() {
+        for (int i = 0; i < 50; i++) {
+            attempts.loginFailed("user" + i + "@example.com", "10.0.0.1");
+        }
+
+        assertThat(attempts.isBlocked("new@example.com", "10.0.0.1")).isTrue();
+        assertThat(attempts.isBlocked("new@example.com", "10.0.0.2")).isFalse();
+    }
+
+    @Test
+    void previousWindowCountsInProportionOfTheRemainingTime() {
+        failures("alice@example.com", "10.0.0.1", 5);
+
+        // Half-way through the next window, the 5 previous failures weigh 2
+        now.set(START + WINDOW + WINDOW / 2);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+
+        failures("alice@example.com", "10.0.0.1", 2);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+        failures("alice@example.com", "10.0.0.1", 1);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isTrue();
+    }
+
+    @Test
+    void countersExpireAfterTwoWindows() {
+        failures("alice@example.com", "10.0.0.1", 5);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isTrue();
+
+        now.set(START + 2 * WINDOW);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+
+        // A stale slot of the same parity restarts from zero
+        failures("alice@example.com", "10.0.0.1", 1);
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void successfulLoginResetsTheEmailCounter() {
+        failures("alice@example.com", "10.0.0.1", 4);
+        attempts.loginSucceeded("alice@example.com");
+
+        failures("alice@example.com", "10.0.0.1", 1);
+
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+        verify(userService, never()).lockAccount(anyString());
+    }
+
+    @Test
+    void saturatedSketchDoesNotLockAccounts() {
+        // Credential stuffing: one failure for each of many emails, from many addresses, fills every column
+        ReflectionTestUtils.setField(attempts, "emailSketchWidth", 4);
+        attempts.init();
+        for (int i = 0; i < 200; i++) {
+            attempts.loginFailed("victim" + i + "@example.com", "10.1." + (i / 40) + "." + i);
+        }
+
+        attempts.loginFailed("alice@example.com", "10.0.0.1");
+
+        verify(userService, never()).lockAccount("alice@example.com");
+        // Tracked emails are judged on their exact count, not on the saturated sketch
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+    }
+
+    @Test
+    void evictedEmailStillNeedsAnExactCountToBeLocked() {
+        ReflectionTestUtils.setField(attempts, "trackedEmailsMaxSize", 2);
+        attempts.init();
+        failures("alice@example.com", "10.0.0.1", 4);
+        attempts.loginFailed("bob@example.com", "10.0.0.2");
+        attempts.loginFailed("carol@example.com", "10.0.0.3");
+
+        // Alice was evicted: the sketch alone would count 5, but the lock waits for an exact count of 5
+        attempts.loginFailed("alice@example.com", "10.0.0.1");
+        verify(userService, never()).lockAccount(anyString());
+
+        failures("alice@example.com", "10.0.0.1", 4);
+        verify(userService, times(1)).lockAccount("alice@example.com");
+    }
+
+    @Test
+    void retryAfterCountsDownToTheNextWindow() {
+        now.set(START + WINDOW - 30_000);
+
+        assertThat(attempts.retryAfterSeconds()).isEqualTo(30);
+    }
+
+    @Test
+    void disabledLimiterNeverBlocks() {
+        ReflectionTestUtils.setField(attempts, "enabled", false);
+
+        failures("alice@example.com", "10.0.0.1", 10);
+
+        assertThat(attempts.isBlocked("alice@example.com", "10.0.0.1")).isFalse();
+        verify(userService, never()).lockAccount(anyString());
+    }
+
+    private void failures(String email, String clientIp, int count) {
+        for (int i = 0; i < count; i++) {
+            attempts.loginFailed(email, clientIp);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.inaf.authe_service.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SaleNumberGeneratorTest {
+
+    // 2026-01-15T10:00:00Z
+    private static final long START_MILLIS = 1_768_471_200_000L;
+    private static final int SEQUENCE_SIZE = 1 << 16;
+
+    @Test
+    void firstNumberIsSeededFromTheClockPlusTheMargin() {
+        SaleNumberGenerator generator = new SaleNumberGenerator(7, 5, () -> START_MILLIS);
+
+        assertThat(generator.nextSaleNumber()).isEqualTo("SALE-20260115100005-07-00001");
+    }
+
+    @Test
+    void exhaustedSequenceBorrowsTheNextSecond() {
+        SaleNumberGenerator generator = new SaleNumberGenerator(0, 0, () -> START_MILLIS);
+
+        String last = null;
+        for (int i = 1; i < SEQUENCE_SIZE; i++) {
+            last = generator.nextSaleNumber();
+        }
+
+        assertThat(last).isEqualTo("SALE-20260115100000-00-65535");
+        assertThat(generator.nextSaleNumber()).isEqualTo("SALE-20260115100001-00-00000");
+        assertThat(generator.nextSaleNumber()).isEqualTo("SALE-20260115100001-00-00001");
+    }
+
+    @Test
+    void sequenceRestartsWhenTheClockPassesTheCurrentSecond() {
+        AtomicLong now = new AtomicLong(START_MILLIS);
+        SaleNumberGenerator generator = new SaleNumberGenerator(0, 0, now::get);
+
+        assertThat(generator.nextSaleNumber()).isEqualTo("SALE-20260115100000-00-00001");
+        now.addAndGet(1_500);
+        assertThat(generator.nextSaleNumber()).isEqualTo("SALE-20260115100001-00-00000");
+    }
+
+    @Test
+    void clockGoingBackKeepsNumbersIncreasing() {
+        AtomicLong now = new AtomicLong(START_MILLIS);
+        SaleNumberGenerator generator = new SaleNumberGenerator(0, 0, now::get);
+
+        String before = generator.nextSaleNumber();
+        now.addAndGet(-3_000);
+
+        assertThat(generator.nextSaleNumber()).isGreaterThan(before);
+    }
+
+    @Test
+    void restartAfterABurstDoesNotReuseBorrowedSeconds() {
+        // Process running long enough for its own startup margin to be behind the clock
+        SaleNumberGenerator beforeRestart = new SaleNumberGenerator(0, 0, () -> START_MILLIS);
+        String last = null;
+        for (int i = 0; i < 3 * SEQUENCE_SIZE; i++) {
+            last = beforeRestart.nextSaleNumber();
+        }
+
+        SaleNumberGenerator afterRestart = new SaleNumberGenerator(0, 5, () -> START_MILLIS + 1_000);
+
+        assertThat(afterRestart.nextSaleNumber()).isGreaterThan(last);
+    }
+
+    @Test
+    void concurrentCallersGetUniqueIncreasingNumbers() throws Exception {
+        SaleNumberGenerator generator = new SaleNumberGenerator(0, 0, () -> START_MILLIS);
+        int threads = 8;
+        int perThread = 20_000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<String>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    List<String> numbers = new ArrayList<>(perThread);
+                    for (int i = 0; i < perThread; i++) {
+                        numbers.add(generator.nextSaleNumber());
+                    }
+                    return numbers;
+                }));
+            }
+
+            Set<String> all = new HashSet<>();
+            for (Future<List<String>> future : futures) {
+                List<String> numbers = future.get();
+                assertThat(numbers).isSorted();
+                all.addAll(numbers);
+            }
+            assertThat(all).hasSize(threads * perThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
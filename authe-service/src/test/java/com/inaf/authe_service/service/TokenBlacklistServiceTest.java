@@ -0,0 +1,140 @@
+package com.inaf.authe_service.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBlacklistServiceTest {
+
+    private static final long HOUR = 3_600_000;
+
+    @Test
+    void refreshTokenIsConsumedOnlyOnce() {
+        TokenBlacklistService blacklist = blacklist(true);
+        Date expiration = inHours(24);
+
+        assertThat(blacklist.consume("refresh-1", expiration)).isTrue();
+        assertThat(blacklist.consume("refresh-1", expiration)).isFalse();
+        assertThat(blacklist.consume("refresh-2", expiration)).isTrue();
+    }
+
+    @Test
+    void rotationDoesNotDependOnTheBlacklistSwitch() {
+        TokenBlacklistService blacklist = blacklist(false);
+        Date expiration = inHours(24);
+
+        assertThat(blacklist.consume("refresh-1", expiration)).isTrue();
+        assertThat(blacklist.consume("refresh-1", expiration)).isFalse();
+    }
+
+    @Test
+    void tokenWithoutIdCannotBeConsumed() {
+        TokenBlacklistService blacklist = blacklist(true);
+
+        assertThat(blacklist.consume(null, inHours(24))).isFalse();
+        assertThat(blacklist.consume("refresh-1", null)).isFalse();
+        assertThat(blacklist.consume("refresh-1", new Date(System.currentTimeMillis() - 1000))).isFalse();
+    }
+
+    @Test
+    void revokedAccessTokenIsRejected() {
+        TokenBlacklistService blacklist = blacklist(true);
+        Date expiration = inHours(1);
+
+        blacklist.revoke("access-1", expiration);
+
+        assertThat(blacklist.isRevoked("access-1", expiration)).isTrue();
+        assertThat(blacklist.isRevoked("access-2", expiration)).isFalse();
+    }
+
+    @Test
+    void revokedRefreshTokenCannotBeRotated() {
+        TokenBlacklistService blacklist = blacklist(true);
+        Date expiration = inHours(24);
+
+        blacklist.revoke("refresh-1", expiration);
+
+        assertThat(blacklist.consume("refresh-1", expiration)).isFalse();
+    }
+
+    @Test
+    void bloomFilterStaysNearItsFalsePositiveRate() {
+        TokenBlacklistService blacklist = blacklist(true);
+        Date expiration = inHours(1);
+        for (int i = 0; i < 1000; i++) {
+            blacklist.revoke("revoked-" + i, expiration);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String tokenId = "active-" + i;
+            if (mightContain(blacklist, tokenId)) {
+                falsePositives++;
+            }
+            // A false positive of the filter is settled by the exact set
+            assertThat(blacklist.isRevoked(tokenId, expiration)).isFalse();
+        }
+
+        // Configured for 1 % at the expected number of entries
+        assertThat(falsePositives).isLessThan(300);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(blacklist.isRevoked("revoked-" + i, expiration)).isTrue();
+        }
+    }
+
+    @Test
+    void sweepDropsExpiredBucketsAndRebuildsTheFilter() throws InterruptedException {
+        TokenBlacklistService blacklist = blacklist(true, 100);
+        Date shortLived = new Date(System.currentTimeMillis() + 20);
+        Date longLived = inHours(1);
+        blacklist.revoke("short-lived", shortLived);
+        blacklist.revoke("long-lived", longLived);
+
+        // The short-lived bucket is before the current one once its whole width has elapsed
+        Thread.sleep(250);
+        blacklist.purgeExpired();
+
+        assertThat(blacklist.isRevoked("short-lived", shortLived)).isFalse();
+        assertThat(mightContain(blacklist, "short-lived")).isFalse();
+        assertThat(blacklist.isRevoked("long-lived", longLived)).isTrue();
+        // A consumed id whose bucket was swept can be stored again
+        assertThat(blacklist.consume("short-lived", longLived)).isTrue();
+    }
+
+    @Test
+    void sweepKeepsTheFilterWhenNothingExpired() {
+        TokenBlacklistService blacklist = blacklist(true);
+        blacklist.revoke("access-1", inHours(2));
+        Object filter = ReflectionTestUtils.getField(blacklist, "bloomFilter");
+
+        blacklist.purgeExpired();
+
+        assertThat(ReflectionTestUtils.getField(blacklist, "bloomFilter")).isSameAs(filter);
+        assertThat(blacklist.isRevoked("access-1", inHours(2))).isTrue();
+    }
+
+    private static boolean mightContain(TokenBlacklistService blacklist, String tokenId) {
+        Object filter = ReflectionTestUtils.getField(blacklist, "bloomFilter");
+        return Boolean.TRUE.equals(ReflectionTestUtils.invokeMethod(filter, "mightContain", tokenId));
+    }
+
+    private static TokenBlacklistService blacklist(boolean enabled) {
+        return blacklist(enabled, HOUR);
+    }
+
+    private static TokenBlacklistService blacklist(boolean enabled, long bucketWidth) {
+        TokenBlacklistService blacklist = new TokenBlacklistService();
+        ReflectionTestUtils.setField(blacklist, "enabled", enabled);
+        ReflectionTestUtils.setField(blacklist, "bucketWidth", bucketWidth);
+        ReflectionTestUtils.setField(blacklist, "expectedEntries", 1000);
+        blacklist.init();
+        return blacklist;
+    }
+
+    private static Date inHours(int hours) {
+        return new Date(System.currentTimeMillis() + hours * HOUR);
+    }
+}
@@ -0,0 +1,80 @@
+package com.inaf.authe_service.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvReaderTest {
+
+    @Test
+    void splitsPlainFields() throws IOException {
+        assertThat(records("a,b,c\n1,2,3\n")).containsExactly(
+                List.of("a", "b", "c"),
+                List.of("1", "2", "3"));
+    }
+
+    @Test
+    void keepsEmptyFields() throws IOException {
+        assertThat(records(",b,\n")).containsExactly(List.of("", "b", ""));
+    }
+
+    @Test
+    void quotedFieldsMayContainCommasAndEscapedQuotes() throws IOException {
+        assertThat(records("\"Dupont, Jean\",\"say \"\"hi\"\"\",\"\"\n")).containsExactly(
+                List.of("Dupont, Jean", "say \"hi\"", ""));
+    }
+
+    @Test
+    void quoteInsideAnUnquotedFieldIsLiteral() throws IOException {
+        assertThat(records("12\" screen,x\n")).containsExactly(List.of("12\" screen", "x"));
+    }
+
+    @Test
+    void acceptsCrlfCrAndLfLineEndings() throws IOException {
+        assertThat(records("a,b\r\nc,d\re,f\ng,h")).containsExactly(
+                List.of("a", "b"),
+                List.of("c", "d"),
+                List.of("e", "f"),
+                List.of("g", "h"));
+    }
+
+    @Test
+    void quotedFieldsKeepEmbeddedLineBreaks() throws IOException {
+        assertThat(records("name,description\r\nCoffee,\"first line\r\nsecond line\nthird\"\r\nTea,plain\r\n"))
+                .containsExactly(
+                        List.of("name", "description"),
+                        List.of("Coffee", "first line\r\nsecond line\nthird"),
+                        List.of("Tea", "plain"));
+    }
+
+    @Test
+    void skipsBlankLines() throws IOException {
+        assertThat(records("\r\na,b\n\n\r\nc,d\n\n")).containsExactly(
+                List.of("a", "b"),
+                List.of("c", "d"));
+    }
+
+    @Test
+    void returnsNullAtEndOfInput() throws IOException {
+        CsvReader reader = new CsvReader(new StringReader("a\n"));
+
+        assertThat(reader.readRecord()).containsExactly("a");
+        assertThat(reader.readRecord()).isNull();
+        assertThat(new CsvReader(new StringReader("")).readRecord()).isNull();
+    }
+
+    private static List<List<String>> records(String csv) throws IOException {
+        CsvReader reader = new CsvReader(new StringReader(csv));
+        List<List<String>> records = new ArrayList<>();
+        List<String> record;
+        while ((record = reader.readRecord()) != null) {
+            records.add(record);
+        }
+        return records;
+    }
+}